@@ -0,0 +1,230 @@
+/*Plain Java runner for the benchmarks, for when JMH isn't to hand (same workloads as jmh/, see BenchmarkWorkloads)
+ * For every benchmark, history size and thread count: --warmup seconds of unmeasured runs, then
+ * --time seconds measured, reported as
+ *   ops/s         operations finished per second over all threads
+ *   us/op         average time of one operation on one thread
+ *   B/op, MB/s    bytes allocated per operation and per second, over every thread that did work
+ *                 (ThreadMXBean allocation counters, what JMH's -prof gc reports as gc.alloc.rate(.norm))
+ * Thread scaling: simple, advanced, freq1, draft2 and scraper run their operation on T threads at
+ * once (T independent copies, like JMH -t T); analysis runs one operation split over a
+ * ForkJoinPool of T threads (T = 1 is DrawAnalysisEngine.run on the calling thread).
+ * It's a quick check: no forks, so profile pollution between benchmarks can skew later ones a little.
+ * Use JMH for numbers to compare against each other over time.
+ *
+ * compile and run from this directory:
+ *   javac -d ../out-bench -cp ../bin/jsoup-1.18.1.jar $(ls ../src/*.java | grep -v Tensorflow) *.java
+ *   java -Xmx4g -cp ../out-bench:../bin/jsoup-1.18.1.jar BenchmarkHarness [--bench simple,advanced,freq1,draft2,analysis,scraper]
+ *        [--sizes 1000,10000,100000,1000000] [--threads 1,2,4] [--format csv|pbd] [--warmup 1] [--time 2]
+ *        [--html synthetic:52,../bin/test_training_HTML.html]
+ *   (--sizes 10000000,100000000 for the big histories, they need -Xmx8g and a few GB in the temp directory)
+ */
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class BenchmarkHarness {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile long sink;  // Every result ends up here
+
+    // One operation, run over and over
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    private BenchmarkHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> benches = Arrays.asList("simple", "advanced", "freq1", "draft2", "analysis", "scraper");
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+        int[] threadCounts = {1, Runtime.getRuntime().availableProcessors()};
+        String format = "csv";
+        double warmup = 1;
+        double time = 2;
+        List<String> pages = Arrays.asList("synthetic:52", "../bin/test_training_HTML.html");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bench": benches = Arrays.asList(args[++i].split(",")); break;
+                case "--sizes": sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--threads": threadCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--format": format = args[++i]; break;
+                case "--warmup": warmup = Double.parseDouble(args[++i]); break;
+                case "--time": time = Double.parseDouble(args[++i]); break;
+                case "--html": pages = Arrays.asList(args[++i].split(",")); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        threadCounts = Arrays.stream(threadCounts).distinct().toArray();
+        long warmupNanos = (long) (warmup * 1e9);
+        long timeNanos = (long) (time * 1e9);
+
+        System.out.println(String.format("%-34s %7s %14s %12s %12s %10s", "benchmark", "threads", "ops/s", "us/op", "B/op", "MB/s"));
+        for (String bench : benches) {
+            switch (bench) {
+                case "simple":
+                    for (int threads : threadCounts) {
+                        measure("simple", threads, BenchmarkWorkloads::simple, warmupNanos, timeNanos);
+                    }
+                    break;
+                case "advanced":
+                    for (int row = 0; row < RandomDraw_Advanced2.drawConfigurations.length; row++) {
+                        int r = row;
+                        int[] configuration = RandomDraw_Advanced2.drawConfigurations[row];
+                        for (int threads : threadCounts) {
+                            measure("advanced " + configuration[0] + " odd " + configuration[1] + " even", threads,
+                                    () -> BenchmarkWorkloads.advanced(r), warmupNanos, timeNanos);
+                        }
+                    }
+                    break;
+                case "freq1":
+                case "draft2":
+                    for (int size : sizes) {
+                        String history = BenchmarkWorkloads.syntheticHistory(size, format);
+                        Operation load = bench.equals("freq1")
+                                ? () -> BenchmarkWorkloads.freq1(history)
+                                : () -> BenchmarkWorkloads.draft2(history);
+                        for (int threads : threadCounts) {
+                            measure(bench + " " + format + " " + size, threads, load, warmupNanos, timeNanos);
+                        }
+                    }
+                    break;
+                case "analysis":
+                    for (int size : sizes) {
+                        long[] draws = BenchmarkWorkloads.syntheticDraws(size, size);
+                        for (String analysis : BenchmarkWorkloads.ANALYSES) {
+                            for (int threads : threadCounts) {
+                                ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+                                try {
+                                    measure(analysis + " " + size, threads,
+                                            () -> BenchmarkWorkloads.analyse(analysis, draws, pool).hashCode(),
+                                            1, warmupNanos, timeNanos);
+                                } finally {
+                                    if (pool != null) {
+                                        pool.shutdown();
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    break;
+                case "scraper":
+                    for (String source : pages) {
+                        String page = BenchmarkWorkloads.readPage(source);
+                        String name = source.substring(source.lastIndexOf('/') + 1);
+                        for (boolean dom : new boolean[] {false, true}) {
+                            for (int threads : threadCounts) {
+                                measure((dom ? "scraper dom " : "scraper stream ") + name, threads,
+                                        () -> BenchmarkWorkloads.scrape(page, dom), warmupNanos, timeNanos);
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown benchmark: " + bench);
+                    return;
+            }
+        }
+    }
+
+    // threads copies of the operation at once
+    private static void measure(String name, int threads, Operation operation, long warmupNanos, long timeNanos)
+            throws InterruptedException {
+        measure(name, threads, operation, threads, warmupNanos, timeNanos);
+    }
+
+    // callers threads calling the operation (which may use more threads itself), reported as threads
+    private static void measure(String name, int threads, Operation operation, int callers, long warmupNanos, long timeNanos)
+            throws InterruptedException {
+        run(operation, callers, warmupNanos);
+        long[] before = allocatedBytes();
+        long start = System.nanoTime();
+        long[] totals = run(operation, callers, timeNanos);
+        long elapsed = System.nanoTime() - start;
+        long allocated = totals[2] + allocatedSince(before);
+        long operations = totals[0];
+        double seconds = elapsed / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%-34s %7d %14.1f %12.3f %12.1f %10.1f", name, threads,
+                operations / seconds, totals[1] / 1e3 / operations, (double) allocated / operations, allocated / seconds / 1e6));
+    }
+
+    // Run the operation on callers threads until nanos have passed,
+    // returns {operations, nanoseconds in them, bytes the callers allocated}
+    private static long[] run(Operation operation, int callers, long nanos) throws InterruptedException {
+        AtomicLong operations = new AtomicLong();
+        AtomicLong busy = new AtomicLong();
+        AtomicLong allocated = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        long deadline = System.nanoTime() + nanos;
+        Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < callers; t++) {
+            Thread thread = new Thread(() -> {
+                long count = 0;
+                long result = 0;
+                long bytes = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long now = start;
+                try {
+                    // At least one operation, however long it takes
+                    do {
+                        result ^= operation.run();
+                        count++;
+                        now = System.nanoTime();
+                    } while (now < deadline);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+                operations.addAndGet(count);
+                busy.addAndGet(now - start);
+                allocated.addAndGet(THREADS.getCurrentThreadAllocatedBytes() - bytes);
+                sink ^= result;
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("Benchmark failed", failure[0]);
+        }
+        return new long[] {operations.get(), busy.get(), allocated.get()};
+    }
+
+    // Bytes allocated so far by every live thread, indexed as getAllThreadIds
+    private static long[] allocatedBytes() {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        long[] pairs = new long[ids.length * 2];
+        for (int i = 0; i < ids.length; i++) {
+            pairs[2 * i] = ids[i];
+            pairs[2 * i + 1] = bytes[i];
+        }
+        return pairs;
+    }
+
+    // Bytes allocated since allocatedBytes() returned before by the threads alive now (pool workers,
+    // the callers count their own before they finish, see run)
+    private static long allocatedSince(long[] before) {
+        long[] after = allocatedBytes();
+        long total = 0;
+        for (int i = 0; i < after.length; i += 2) {
+            long previous = 0;
+            for (int j = 0; j < before.length; j += 2) {
+                if (before[j] == after[i]) {
+                    previous = before[j + 1];
+                    break;
+                }
+            }
+            total += Math.max(0, after[i + 1] - previous);
+        }
+        return total;
+    }
+}
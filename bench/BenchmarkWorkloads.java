@@ -0,0 +1,171 @@
+/*The operations the benchmarks measure, and the synthetic histories they run on
+ * Shared by BenchmarkHarness (plain Java, runs anywhere) and the JMH classes in jmh/ (which have
+ * to live in a package, so they reach these through MethodHandles, see jmh/powerball/bench/Workloads).
+ * Every operation returns what it made (a value built from all of its work, or the accumulator) for
+ * the caller to consume, so none of it can be optimised away.
+ * - simple / advanced: RandomDraw_Simple1.CalculateNumbers, RandomDraw_Advanced2.CalculateNumbers(row)
+ * - freq1: Lotto_Historical_Freq1's loading loop (DrawHistoryFile.loadDraws, then dropping the older
+ *   game formats in place); draft2: Lotto_Historical_draft2.readPowerballDraws
+ * - analysis: one of Lotto_Historical_draft2's eight analyses, the same accumulator its method runs
+ *   without the report it prints, on one thread or split over a ForkJoinPool
+ * - scraper: LottoSite_Scraper's row extraction from an archive page, streamed (ArchivePageParser.parse,
+ *   the default) or from a whole jsoup Document (--dom). bin/test_training_HTML.html is a tfjs demo
+ *   page with no draws in it, so "synthetic:N" makes a page of N rows in the archive's markup
+ *   (about 52 to a year), which is what the scraper actually spends its time on
+ * Synthetic histories are uniformly random current game draws, numbered 1 .. n and written newest
+ * first like the scraped CSVs (or as a .pbd). They're kept in the temp directory and reused, a
+ * 10^8 draw CSV is about 2.5 GB (and a .pbd that size needs -Xmx8g or so to write).
+ */
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jsoup.Jsoup;
+
+public final class BenchmarkWorkloads {
+    // Lotto_Historical_draft2's analyses, in the order of its methods
+    public static final String[] ANALYSES = {
+            "frequency", "range", "sum", "oddEven", "repeating", "consecutive", "powerball", "combinations"
+    };
+
+    private static final String BASE_URI = LottoSite_Scraper.DEFAULT_BASE_URL + "2024";
+
+    private BenchmarkWorkloads() {
+    }
+
+    public static long simple() {
+        return RandomDraw_Simple1.CalculateNumbers();
+    }
+
+    public static long advanced(int row) {
+        return RandomDraw_Advanced2.CalculateNumbers(row);
+    }
+
+    // Lotto_Historical_Freq1.main up to the analysis: load, then keep the 7 + Powerball draws
+    public static long freq1(String historyFile) throws IOException {
+        long[] draws = DrawHistoryFile.loadDraws(historyFile);
+        int validDraws = 0;
+        for (long numbers : draws) {
+            if (!PackedDraw.isCurrentGame(numbers)) {
+                continue;
+            }
+            draws[validDraws++] = numbers;
+        }
+        return validDraws == 0 ? 0 : draws[validDraws - 1] + validDraws;
+    }
+
+    public static long draft2(String historyFile) throws IOException {
+        long[] draws = Lotto_Historical_draft2.readPowerballDraws(historyFile);
+        return draws.length == 0 ? 0 : draws[draws.length - 1] + draws.length;
+    }
+
+    // A fresh accumulator for one of ANALYSES
+    public static DrawAccumulator analysis(String name) {
+        switch (name) {
+            case "frequency": return new DrawAnalyses.NumberFrequency();
+            case "range": return new DrawAnalyses.RangeHistogram();
+            case "sum": return new DrawAnalyses.SumHistogram();
+            case "oddEven": return new DrawAnalyses.OddEvenHistogram();
+            case "repeating": return new DrawAnalyses.RepeatingNumbers();
+            case "consecutive": return new DrawAnalyses.ConsecutiveHistogram();
+            case "powerball": return new DrawAnalyses.PowerballAnalysis();
+            case "combinations": return new DrawAnalyses.CombinationCounts();
+            default: throw new IllegalArgumentException("Unknown analysis: " + name);
+        }
+    }
+
+    // Run one analysis over the draws, on the calling thread when pool is null
+    public static DrawAccumulator analyse(String name, long[] draws, ForkJoinPool pool) {
+        DrawAnalysisEngine engine = new DrawAnalysisEngine();
+        DrawAccumulator accumulator = engine.register(analysis(name));
+        if (pool == null) {
+            engine.run(draws);
+        } else {
+            engine.runParallel(draws, pool);
+        }
+        return accumulator;
+    }
+
+    // Rows of an archive page, streamed or through a full Document
+    public static long scrape(String page, boolean dom) throws IOException {
+        long[] sum = new long[1];
+        int rows = dom
+                ? ArchivePageParser.extract(Jsoup.parse(page, BASE_URI), row -> sum[0] += row.draw)
+                : ArchivePageParser.parse(new StringReader(page), BASE_URI, row -> sum[0] += row.draw);
+        return sum[0] + rows;
+    }
+
+    // An HTML file, or "synthetic:N" for an archive page of N random draws
+    public static String readPage(String source) throws IOException {
+        if (source.startsWith("synthetic:")) {
+            return syntheticArchivePage(Integer.parseInt(source.substring("synthetic:".length())));
+        }
+        return new String(Files.readAllBytes(Paths.get(source)), StandardCharsets.UTF_8);
+    }
+
+    // A results archive year: a header row, then one row per draw, newest first, each with the
+    // dividends link ArchivePageParser takes the label from and the balls as <li>s (Powerball last)
+    public static String syntheticArchivePage(int rows) {
+        long[] draws = syntheticDraws(rows, rows);
+        int[] numbers = new int[PackedDraw.MAX_ENCODED_NUMBER];
+        StringBuilder page = new StringBuilder("<!DOCTYPE html>\n<html lang=\"en\"><head><title>Powerball Results Archive</title></head>\n"
+                + "<body><div class=\"content\"><h1>Powerball Results Archive</h1>\n<table class=\"results\">\n"
+                + "<thead><tr><th>Draw</th><th>Numbers</th></tr></thead>\n<tbody>\n");
+        for (int i = rows - 1; i >= 0; i--) {
+            String label = "Powerball Draw " + (i + 1) + " dividends";
+            page.append("<tr>\n<td><a href=\"/powerball/results/").append(i + 1).append("\" title=\"").append(label)
+                    .append("\">Thursday<br>").append(i % 28 + 1).append(" March</a></td>\n<td><ul class=\"balls\">");
+            int count = PackedDraw.unpackMain(draws[i], numbers, 0);
+            for (int j = 0; j < count; j++) {
+                page.append("<li class=\"ball\">").append(numbers[j]).append("</li>");
+            }
+            page.append("<li class=\"ball powerball\">").append(PackedDraw.powerball(draws[i])).append("</li></ul></td>\n</tr>\n");
+        }
+        return page.append("</tbody>\n</table>\n</div></body></html>\n").toString();
+    }
+
+    // count random current game draws, the same ones for the same seed
+    public static long[] syntheticDraws(int count, long seed) {
+        DrawGenerator generator = new DrawGenerator(seed);
+        long[] draws = new long[count];
+        for (int i = 0; i < count; i++) {
+            draws[i] = generator.next();
+        }
+        return draws;
+    }
+
+    // A synthetic history file of count draws ("csv" or "pbd"), written the first time it's asked for
+    public static String syntheticHistory(int count, String format) throws IOException {
+        Path path = Paths.get(System.getProperty("java.io.tmpdir"), "powerball-bench-" + count + "." + format);
+        if (Files.exists(path)) {
+            return path.toString();
+        }
+        long[] draws = syntheticDraws(count, count);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (format.equals("pbd")) {
+            int[] drawNumbers = new int[count];
+            for (int i = 0; i < count; i++) {
+                drawNumbers[i] = i + 1;
+            }
+            // write() sorts by draw number and moves the file into place itself
+            DrawHistoryFile.write(path.toString(), drawNumbers, draws);
+            return path.toString();
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            byte[] line = new byte[64];
+            for (int i = count - 1; i >= 0; i--) {
+                int length = BulkTicketGenerator.formatLine(draws[i], line, 0) - 1;  // Without the newline
+                out.write(line, 0, length);
+                out.write((",Powerball Draw " + (i + 1) + " dividends\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        Files.move(temp, path);
+        return path.toString();
+    }
+}
@@ -0,0 +1,63 @@
+/*Each of Lotto_Historical_draft2's analyses over synthetic histories of 10^3 to 10^8 draws
+ * The same accumulator each draft2 method runs, without the report it prints. threads = 1 is
+ * DrawAnalysisEngine.run on the benchmark thread, more splits the draws over a ForkJoinPool of
+ * that many workers (runParallel), which is the thread scaling to look at here.
+ * (How to build and run these: see HistoryParsingBenchmarks)
+ */
+package powerball.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AnalysisBenchmarks {
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int draws;
+
+    // BenchmarkWorkloads.ANALYSES
+    @Param({"frequency", "range", "sum", "oddEven", "repeating", "consecutive", "powerball", "combinations"})
+    public String analysis;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private long[] history;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        history = Workloads.syntheticDraws(draws, draws);
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Object analyse() throws Throwable {
+        return Workloads.analyse(analysis, history, pool);
+    }
+}
@@ -0,0 +1,44 @@
+/*RandomDraw_Simple1.CalculateNumbers and RandomDraw_Advanced2.CalculateNumbers for each drawConfigurations row
+ * One draw per operation. Both use the calling thread's DrawGenerator, so threads share nothing
+ * and -t N should scale with the cores; -prof gc should show no allocation at all.
+ * (How to build and run these: see HistoryParsingBenchmarks)
+ */
+package powerball.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmarks {
+    // The row parameter lives in its own state so only advanced() runs once per row
+    @State(Scope.Thread)
+    public static class Configuration {
+        // Rows of RandomDraw_Advanced2.drawConfigurations: 4/3, 3/4, 2/5, 5/2, 1/6, 6/1, 0/7, 7/0 odd/even
+        @Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+        public int row;
+    }
+
+    @Benchmark
+    public long simple() throws Throwable {
+        return Workloads.simple();
+    }
+
+    @Benchmark
+    public long advanced(Configuration configuration) throws Throwable {
+        return Workloads.advanced(configuration.row);
+    }
+}
@@ -0,0 +1,62 @@
+/*Loading a history file the way Lotto_Historical_Freq1 and Lotto_Historical_draft2.readPowerballDraws do
+ * over synthetic histories of 10^3 to 10^8 draws, as a scraped CSV or a .pbd (see BenchmarkWorkloads).
+ * The files are written to the temp directory on first use and kept; 10^8 draws is about 2.5 GB of
+ * CSV, and the loaded history alone is 800 MB, so give it -Xmx8g or trim the sizes with -p draws=...
+ *
+ * There's no build file, so from the bench directory (with jmh-core, jmh-generator-annprocess and
+ * their dependencies jopt-simple and commons-math3 in jmh-lib/, JMH 1.37):
+ *   javac -d ../out-bench -cp ../bin/jsoup-1.18.1.jar $(ls ../src/*.java | grep -v Tensorflow) *.java
+ *   javac -d ../out-jmh -cp "../out-bench:jmh-lib/*" -processorpath "jmh-lib/*" jmh/powerball/bench/*.java
+ *   java -Xmx8g -cp "../out-jmh:../out-bench:../bin/jsoup-1.18.1.jar:jmh-lib/*" org.openjdk.jmh.Main -prof gc [regex] [-p draws=1000,1000000]
+ * Thread scaling: JMH takes one thread count per run, e.g.
+ *   for t in 1 2 4 8; do java ... org.openjdk.jmh.Main -prof gc -t $t -rf json -rff jmh-t$t.json; done
+ * (AnalysisBenchmarks splits one analysis over a pool instead, its threads parameter).
+ * BenchmarkHarness runs the same workloads without JMH for a quick look.
+ */
+package powerball.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class HistoryParsingBenchmarks {
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int draws;
+
+    @Param({"csv", "pbd"})
+    public String format;
+
+    private String historyFile;
+
+    @Setup(Level.Trial)
+    public void writeHistory() throws Throwable {
+        historyFile = Workloads.syntheticHistory(draws, format);
+    }
+
+    @Benchmark
+    public long freq1() throws Throwable {
+        return Workloads.freq1(historyFile);
+    }
+
+    @Benchmark
+    public long draft2ReadPowerballDraws() throws Throwable {
+        return Workloads.draft2(historyFile);
+    }
+}
@@ -0,0 +1,53 @@
+/*LottoSite_Scraper's row extraction over an archive page
+ * stream: ArchivePageParser.parse, what the scraper does by default
+ * dom:    ArchivePageParser.extract on a whole jsoup Document (LottoSite_Scraper --dom)
+ * Pages: a synthetic year of 52 draws in the archive's markup, and bin/test_training_HTML.html
+ * (no draws on it, so that one is the cost of getting through a page that has nothing to extract).
+ * The page is read once, so only parsing and extraction are measured (-prof gc shows what each
+ * allocates per page). Run from the bench directory or point -p html=... at other pages.
+ * (How to build and run these: see HistoryParsingBenchmarks)
+ */
+package powerball.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScraperBenchmarks {
+    @Param({"synthetic:52", "../bin/test_training_HTML.html"})
+    public String html;
+
+    private String page;
+
+    @Setup(Level.Trial)
+    public void readPage() throws Throwable {
+        page = Workloads.readPage(html);
+    }
+
+    @Benchmark
+    public long stream() throws Throwable {
+        return Workloads.scrape(page, false);
+    }
+
+    @Benchmark
+    public long dom() throws Throwable {
+        return Workloads.scrape(page, true);
+    }
+}
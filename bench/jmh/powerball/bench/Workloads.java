@@ -0,0 +1,82 @@
+/*The default package BenchmarkWorkloads, callable from this package
+ * JMH won't generate code for benchmarks in the default package, and a class in a package can't
+ * name one in the default package, so each workload is looked up once as a MethodHandle. They're
+ * static finals, which the JIT treats as constants and inlines through like direct calls.
+ */
+package powerball.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ForkJoinPool;
+
+final class Workloads {
+    private static final Class<?> WORKLOADS = load("BenchmarkWorkloads");
+
+    private static final MethodHandle SIMPLE = find("simple", MethodType.methodType(long.class));
+    private static final MethodHandle ADVANCED = find("advanced", MethodType.methodType(long.class, int.class));
+    private static final MethodHandle FREQ1 = find("freq1", MethodType.methodType(long.class, String.class));
+    private static final MethodHandle DRAFT2 = find("draft2", MethodType.methodType(long.class, String.class));
+    private static final MethodHandle ANALYSE = find("analyse", MethodType.methodType(load("DrawAccumulator"),
+            String.class, long[].class, ForkJoinPool.class)).asType(
+            MethodType.methodType(Object.class, String.class, long[].class, ForkJoinPool.class));
+    private static final MethodHandle SCRAPE = find("scrape", MethodType.methodType(long.class, String.class, boolean.class));
+    private static final MethodHandle READ_PAGE = find("readPage", MethodType.methodType(String.class, String.class));
+    private static final MethodHandle SYNTHETIC_DRAWS = find("syntheticDraws", MethodType.methodType(long[].class, int.class, long.class));
+    private static final MethodHandle SYNTHETIC_HISTORY = find("syntheticHistory", MethodType.methodType(String.class, int.class, String.class));
+
+    private Workloads() {
+    }
+
+    static long simple() throws Throwable {
+        return (long) SIMPLE.invokeExact();
+    }
+
+    static long advanced(int row) throws Throwable {
+        return (long) ADVANCED.invokeExact(row);
+    }
+
+    static long freq1(String historyFile) throws Throwable {
+        return (long) FREQ1.invokeExact(historyFile);
+    }
+
+    static long draft2(String historyFile) throws Throwable {
+        return (long) DRAFT2.invokeExact(historyFile);
+    }
+
+    static Object analyse(String name, long[] draws, ForkJoinPool pool) throws Throwable {
+        return (Object) ANALYSE.invokeExact(name, draws, pool);
+    }
+
+    static long scrape(String page, boolean dom) throws Throwable {
+        return (long) SCRAPE.invokeExact(page, dom);
+    }
+
+    static String readPage(String htmlFile) throws Throwable {
+        return (String) READ_PAGE.invokeExact(htmlFile);
+    }
+
+    static long[] syntheticDraws(int count, long seed) throws Throwable {
+        return (long[]) SYNTHETIC_DRAWS.invokeExact(count, seed);
+    }
+
+    static String syntheticHistory(int count, String format) throws Throwable {
+        return (String) SYNTHETIC_HISTORY.invokeExact(count, format);
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(name + " isn't on the classpath, compile ../src and ../bench with the benchmarks", e);
+        }
+    }
+
+    private static MethodHandle find(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(WORKLOADS, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkWorkloads." + name + type + " is missing", e);
+        }
+    }
+}
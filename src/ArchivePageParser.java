@@ -0,0 +1,163 @@
+/*Streaming extraction of draws from a results archive page
+ * The page is fed through jsoup's StreamParser, every <tr> is handed over as soon as it
+ * closes and then removed from the tree, so memory per page stays flat however many draws the
+ * archive has (the rest of the page, the header and menus, is left in the tree, it doesn't grow).
+ * Elements are taken straight off the parser's iterator and only <tr>s are looked at: going
+ * through selectNext("*") and closest("tr") for every element parsed a query each time and made
+ * streaming slower, and allocate more, than building the whole DOM.
+ * Each row becomes a typed Row (draw number + PackedDraw) instead of a comma joined string.
+ * extract(Document, ...) does the same from an already parsed page (the old DOM + select way).
+ */
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public final class ArchivePageParser {
+    // One draw row of an archive page
+    public static final class Row {
+        public final int drawNumber;  // From the "Powerball Draw N dividends" title, 0 when there's none
+        public final long draw;       // PackedDraw
+        public final String label;
+
+        Row(int drawNumber, long draw, String label) {
+            this.drawNumber = drawNumber;
+            this.draw = draw;
+            this.label = label;
+        }
+
+        // The scraper's CSV line, e.g. "9,10,12,15,20,29,30,16,Powerball Draw 1480 dividends"
+        public StringBuilder appendCsv(StringBuilder out) {
+            return PackedDraw.appendNumbers(out, draw, ",").append(',').append(label);
+        }
+
+        @Override
+        public String toString() {
+            return appendCsv(new StringBuilder()).toString();
+        }
+    }
+
+    private ArchivePageParser() {
+    }
+
+    // Stream a page, calling rows for each draw row as it closes, returns the number of rows
+    public static int parse(Reader page, String baseUri, Consumer<Row> rows) throws IOException {
+        return parseWhile(page, baseUri, row -> {
+            rows.accept(row);
+            return true;
+        });
+    }
+
+    // Stream a page until rows returns false (the rest of the page isn't read),
+    // returns the number of rows handed over
+    public static int parseWhile(Reader page, String baseUri, Predicate<Row> rows) throws IOException {
+        int count = 0;
+        int[] numbers = new int[16];
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(page, baseUri)) {
+            // Elements come out in the order they close, so a <tr> comes out with its cells complete
+            Iterator<Element> elements = parser.iterator();
+            while (elements.hasNext()) {
+                Element element = elements.next();
+                if (!element.nameIs("tr")) {
+                    continue;
+                }
+                Row row = toRow(element, numbers);
+                element.remove();
+                if (row != null) {
+                    count++;
+                    if (!rows.test(row)) {
+                        break;
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();  // The iterator's way of reporting a failed read
+        }
+        return count;
+    }
+
+    // Rows of an already parsed page
+    public static int extract(Document doc, Consumer<Row> rows) {
+        int count = 0;
+        int[] numbers = new int[16];
+        for (Element tableRow : doc.select("tr")) {
+            Row row = toRow(tableRow, numbers);
+            if (row != null) {
+                rows.accept(row);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // A <tr> as a Row, null when it has no numbers (header rows) or they aren't a valid draw
+    private static Row toRow(Element tableRow, int[] numbers) {
+        // Numbers are the <li> items (last one is the Powerball), the label is the first <a title="">
+        int count = 0;
+        String label = "";
+        for (Element element : tableRow.getAllElements()) {
+            if (element.nameIs("li")) {
+                int number = parseNumber(element.text());
+                if (number < 0 || count == numbers.length) {
+                    return null;
+                }
+                numbers[count++] = number;
+            } else if (label.isEmpty() && element.nameIs("a") && element.hasAttr("title")) {
+                label = element.attr("title");
+            }
+        }
+        if (count < 2) {
+            return null;
+        }
+
+        long mask = 0L;
+        for (int i = 0; i < count - 1; i++) {
+            if (numbers[i] < 1 || numbers[i] > PackedDraw.MAX_ENCODED_NUMBER || PackedDraw.contains(mask, numbers[i])) {
+                return null;  // Out of range or repeated number
+            }
+            mask |= PackedDraw.bit(numbers[i]);
+        }
+        int powerball = numbers[count - 1];
+        if (powerball < 1 || powerball > PackedDraw.MAX_ENCODED_POWERBALL) {
+            return null;
+        }
+        return new Row(drawNumberOf(label), PackedDraw.of(mask, powerball), label);
+    }
+
+    // Whole number from an <li> (text() is already trimmed), -1 if it isn't one
+    private static int parseNumber(String text) {
+        if (text.isEmpty() || text.length() > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // First run of digits in a label ("Powerball Draw 1480 dividends" -> 1480), 0 if there's none
+    public static int drawNumberOf(String label) {
+        int value = 0;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else if (value > 0) {
+                break;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,108 @@
+/*Training batches for every epoch, made on a background thread while the model trains
+ * The producer shuffles the samples, fills a batch (offsets into the history, or freshly jittered
+ * windows when augmenting) and puts it in a queue of QUEUE_DEPTH ready batches; the trainer takes
+ * one, trains on it and hands it back. With QUEUE_DEPTH + 1 batches in all, the next two are being
+ * made while one is trained on, so a step never waits for its data unless making a batch takes
+ * longer than training on it. Memory is those few batches, whatever the epoch count.
+ * Each epoch is augmented afresh (Tensorflow4's augmentData ran once, so every epoch saw the same
+ * noise). The noise and the shuffles come from the seed alone, so a run gives the same batches
+ * in the same order however the two threads happen to interleave.
+ */
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+public final class BatchPrefetcher implements AutoCloseable {
+    private static final int QUEUE_DEPTH = 2;
+
+    // Markers on the ready queue
+    private static final WindowDataset.Batch END_OF_EPOCH = new WindowDataset.Batch();
+    private static final WindowDataset.Batch FAILED = new WindowDataset.Batch();
+
+    private final BlockingQueue<WindowDataset.Batch> ready = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+    private final BlockingQueue<WindowDataset.Batch> free = new ArrayBlockingQueue<>(QUEUE_DEPTH + 1);
+    private final Thread producer;
+    private volatile Throwable failure;
+    private long waitNanos;
+
+    // epochs epochs of windows in shuffled mini-batches of batchSize, shuffled by random (the
+    // producer's from now on) and jittered from augmentSeed when augment is set
+    public BatchPrefetcher(WindowDataset windows, int batchSize, int epochs, SplittableRandom random,
+                           boolean augment, long augmentSeed) {
+        for (int i = 0; i < QUEUE_DEPTH + 1; i++) {
+            free.add(new WindowDataset.Batch());
+        }
+        producer = new Thread(() -> produce(windows, batchSize, epochs, random, augment, augmentSeed), "batch-prefetch");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    // The next batch of this epoch, or null once the epoch is done. Hand it back with recycle()
+    public WindowDataset.Batch next() {
+        long start = System.nanoTime();
+        WindowDataset.Batch batch;
+        try {
+            batch = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a training batch");
+        }
+        waitNanos += System.nanoTime() - start;
+        if (batch == FAILED) {
+            throw new IllegalStateException("Making training batches failed", failure);
+        }
+        return batch == END_OF_EPOCH ? null : batch;
+    }
+
+    public void recycle(WindowDataset.Batch batch) {
+        free.add(batch);
+    }
+
+    // Time the trainer has spent waiting on next()
+    public long waitMillis() {
+        return waitNanos / 1_000_000;
+    }
+
+    // Stops the producer (training can stop early)
+    @Override
+    public void close() {
+        producer.interrupt();
+    }
+
+    private void produce(WindowDataset windows, int batchSize, int epochs, SplittableRandom random,
+                         boolean augment, long augmentSeed) {
+        int samples = windows.size();
+        int[] order = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            order[i] = i;
+        }
+        try {
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                WindowDataset epochWindows = augment ? windows.augmented(augmentSeed + epoch * 0x9E3779B97F4A7C15L) : windows;
+                shuffle(order, random);
+                for (int from = 0; from < samples; from += batchSize) {
+                    WindowDataset.Batch batch = free.take();
+                    epochWindows.fill(batch, order, from, Math.min(batchSize, samples - from));
+                    ready.put(batch);
+                }
+                ready.put(END_OF_EPOCH);
+            }
+        } catch (InterruptedException e) {
+            // Closed, nobody is waiting for the rest
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            ready.clear();
+            ready.add(FAILED);
+        }
+    }
+
+    private static void shuffle(int[] order, SplittableRandom random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*Multi-threaded bulk ticket generation (millions of 7 + 1 Powerball tickets)
+ * - The request is cut into fixed size blocks that run on a ForkJoinPool
+ * - Every block gets its own SplittableRandom stream, split off one root generator
+ *   in block order, so a seeded run gives the same tickets for any thread count
+ * - Workers format into their own reusable buffers, the calling thread streams the
+ *   finished blocks out in order, with only a bounded number of blocks in flight
+ *
+ * run using java -cp ../bin BulkTicketGenerator --count 100000000 --mode advanced --seed 42 --out tickets.csv
+ * (RandomDraw_Simple1 / RandomDraw_Advanced2 <count> [seed] do the same for their own mode)
+ */
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.function.LongConsumer;
+
+public final class BulkTicketGenerator {
+    // How a ticket is generated, ticketIndex is its position in the whole run
+    public interface TicketStrategy {
+        long next(DrawGenerator generator, long ticketIndex);
+    }
+
+    // RandomDraw_Simple1: any 7 numbers
+    public static final TicketStrategy SIMPLE = (generator, ticketIndex) -> generator.next();
+
+    // RandomDraw_Advanced2: cycle through the odd/even configurations
+    public static final TicketStrategy ADVANCED = (generator, ticketIndex) -> {
+        int[] configuration = RandomDraw_Advanced2.drawConfigurations[
+                (int) (ticketIndex % RandomDraw_Advanced2.drawConfigurations.length)];
+        return generator.nextOddEven(configuration[0], configuration[1]);
+    };
+
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    // History the weighted mode takes its frequencies from unless given one
+    public static final String DEFAULT_HISTORY = "powerball_results.csv";
+
+    // Longest text line is "35,35,35,35,35,35,35,20\n"
+    private static final int MAX_LINE_BYTES = 24;
+
+    private final ForkJoinPool pool;
+    private final int threads;
+
+    public BulkTicketGenerator(int threads) {
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long count = 1_000_000;
+        String mode = "simple";
+        Long seed = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String out = "-";
+        boolean binary = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count": count = Long.parseLong(args[++i]); break;
+                case "--mode": mode = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--out": out = args[++i]; break;
+                case "--binary": binary = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.err.println("Options: --count N --mode simple|advanced|weighted[:history] --seed S --threads T --out file|- --binary");
+                    return;
+            }
+        }
+
+        run(count, strategyFor(mode), seed, threads, out, binary);
+    }
+
+    // Shared entry point for the command line tools
+    public static void run(long count, TicketStrategy strategy, Long seed, int threads, String out, boolean binary)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        BulkTicketGenerator generator = new BulkTicketGenerator(threads);
+        boolean toStdout = "-".equals(out);
+        OutputStream stream = null;
+        try {
+            stream = toStdout ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(out);
+            generator.generate(count, seed == null ? new SplittableRandom().nextLong() : seed, strategy, stream, binary);
+            stream.flush();
+        } finally {
+            generator.shutdown();
+            // Closing the stdout stream would close the process's stdout for everything after it
+            if (stream != null && !toStdout) {
+                stream.close();
+            }
+        }
+        if (!"-".equals(out)) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println("Generated " + count + " tickets in " + String.format("%.2f", seconds) + " s ("
+                    + String.format("%.1f", count / seconds / 1e6) + " M tickets/s) -> " + out);
+        }
+    }
+
+    // Frequency weighted tickets (FrequencyWeights)
+    public static TicketStrategy weighted(FrequencyWeights weights) {
+        return (generator, ticketIndex) -> generator.nextWeighted(weights);
+    }
+
+    // "simple", "advanced", or "weighted[:history]" (weights from powerball_results.csv by default)
+    public static TicketStrategy strategyFor(String mode) {
+        if (mode.equals("weighted") || mode.startsWith("weighted:")) {
+            String historyFile = mode.equals("weighted") ? DEFAULT_HISTORY : mode.substring("weighted:".length());
+            try {
+                return weighted(FrequencyWeights.fromHistory(historyFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't read frequencies from " + historyFile, e);
+            }
+        }
+        switch (mode) {
+            case "simple": return SIMPLE;
+            case "advanced": return ADVANCED;
+            default: throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    // Fill out[] with tickets (in memory, for callers that process them further)
+    public void generate(long[] out, long seed, TicketStrategy strategy) {
+        SplittableRandom root = new SplittableRandom(seed);
+        int blocks = (out.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[blocks];
+        for (int b = 0; b < blocks; b++) {
+            SplittableRandom stream = root.split();  // Split in block order, before any thread runs
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(out.length, from + BLOCK_SIZE);
+            tasks[b] = pool.submit(() -> {
+                DrawGenerator generator = new DrawGenerator(stream);
+                for (int i = from; i < to; i++) {
+                    out[i] = strategy.next(generator, i);
+                }
+            });
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            join(task);
+        }
+    }
+
+    // Hand count tickets to sink straight from the workers (no buffers, nothing kept),
+    // sink is called concurrently and in no particular order, the tickets are the same
+    // ones the streamed output gets for this seed
+    public void generate(long count, long seed, TicketStrategy strategy, LongConsumer sink) {
+        SplittableRandom root = new SplittableRandom(seed);
+        ArrayDeque<ForkJoinTask<?>> tasks = new ArrayDeque<>();
+        for (long from = 0; from < count; from += BLOCK_SIZE) {
+            SplittableRandom stream = root.split();
+            long blockStart = from;
+            long blockEnd = Math.min(count, from + BLOCK_SIZE);
+            tasks.add(pool.submit(() -> {
+                DrawGenerator generator = new DrawGenerator(stream);
+                for (long i = blockStart; i < blockEnd; i++) {
+                    sink.accept(strategy.next(generator, i));
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            join(task);
+        }
+    }
+
+    // Stream count tickets to out as CSV lines ("n1,...,n7,powerball") or 8 byte little endian PackedDraw longs
+    public void generate(long count, long seed, TicketStrategy strategy, OutputStream out, boolean binary)
+            throws IOException, InterruptedException {
+        SplittableRandom root = new SplittableRandom(seed);
+        int window = threads * 4;  // Blocks in flight, bounds memory to window buffers
+        int bufferSize = BLOCK_SIZE * (binary ? Long.BYTES : MAX_LINE_BYTES);
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(window);
+        for (int i = 0; i < window; i++) {
+            freeBuffers.add(new byte[bufferSize]);
+        }
+
+        ArrayDeque<ForkJoinTask<Block>> inFlight = new ArrayDeque<>();
+        for (long from = 0; from < count; from += BLOCK_SIZE) {
+            if (inFlight.size() == window) {
+                writeOldest(inFlight, freeBuffers, out);
+            }
+            byte[] buffer = freeBuffers.take();
+            SplittableRandom stream = root.split();
+            long blockStart = from;
+            int size = (int) Math.min(BLOCK_SIZE, count - from);
+            inFlight.add(pool.submit(() -> fillBlock(buffer, stream, strategy, blockStart, size, binary)));
+        }
+        while (!inFlight.isEmpty()) {
+            writeOldest(inFlight, freeBuffers, out);
+        }
+        out.flush();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // A formatted block waiting to be written
+    private static final class Block {
+        final byte[] buffer;
+        final int length;
+
+        Block(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+    }
+
+    private static void writeOldest(ArrayDeque<ForkJoinTask<Block>> inFlight, BlockingQueue<byte[]> freeBuffers,
+                                    OutputStream out) throws IOException {
+        Block block = join(inFlight.poll());
+        out.write(block.buffer, 0, block.length);
+        freeBuffers.add(block.buffer);  // Hand the buffer back to the workers
+    }
+
+    // Generate one block of tickets straight into its byte buffer
+    private static Block fillBlock(byte[] buffer, SplittableRandom stream, TicketStrategy strategy,
+                                   long blockStart, int size, boolean binary) {
+        DrawGenerator generator = new DrawGenerator(stream);
+        if (binary) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < size; i++) {
+                bytes.putLong(strategy.next(generator, blockStart + i));
+            }
+            return new Block(buffer, bytes.position());
+        }
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = formatLine(strategy.next(generator, blockStart + i), buffer, position);
+        }
+        return new Block(buffer, position);
+    }
+
+    // Write "n1,n2,...,n7,powerball\n" as ASCII without going through String
+    static int formatLine(long ticket, byte[] buffer, int position) {
+        long mask = PackedDraw.mainMask(ticket);
+        while (mask != 0) {
+            position = formatNumber(Long.numberOfTrailingZeros(mask) + 1, buffer, position);
+            buffer[position++] = ',';
+            mask &= mask - 1;
+        }
+        position = formatNumber(PackedDraw.powerball(ticket), buffer, position);
+        buffer[position++] = '\n';
+        return position;
+    }
+
+    private static int formatNumber(int number, byte[] buffer, int position) {
+        if (number >= 10) {
+            buffer[position++] = (byte) ('0' + number / 10);
+        }
+        buffer[position++] = (byte) ('0' + number % 10);
+        return position;
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while generating tickets");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ticket generation failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/*A statistic that is built up one draw at a time
+ * DrawAnalysisEngine feeds every registered accumulator from a single pass over the draws,
+ * results are read back from the accumulator itself (see DrawAnalyses for the built in ones)
+ *
+ * Accumulators are mergeable: runParallel() gives each chunk of draws its own newEmpty()
+ * copy and merges the chunks back together in draw order, so merge must be associative
+ * and the merged result has to match a sequential run over the same draws.
+ */
+import java.io.PrintStream;
+
+public interface DrawAccumulator {
+    // Add one draw (PackedDraw long)
+    void accept(long draw);
+
+    // Empty accumulator of the same kind and settings
+    DrawAccumulator newEmpty();
+
+    // Add the draws another accumulator of the same kind has seen (they come after ours)
+    void merge(DrawAccumulator other);
+
+    // Print the result in the same style as the Lotto_Historical tools
+    void report(PrintStream out);
+}
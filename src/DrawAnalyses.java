@@ -0,0 +1,446 @@
+/*The Lotto_Historical_draft2 "Suggestion" analyses as DrawAccumulators
+ * Every analysis keeps its result as plain counts that can be read back directly,
+ * report() prints it in the same style the draft2 methods used to print.
+ * Counts are longs: over billions of draws a Powerball or a histogram bucket passes 2^31.
+ * Draws must follow the current game (7 from 1-35 + Powerball 1-20).
+ */
+import java.io.PrintStream;
+
+public final class DrawAnalyses {
+    private DrawAnalyses() {
+    }
+
+    // Counts indexed by a per-draw value (range, sum, odd count ...)
+    public abstract static class Histogram implements DrawAccumulator {
+        final long[] counts;
+        long total;
+
+        Histogram(int maxValue) {
+            counts = new long[maxValue + 1];
+        }
+
+        // Value this histogram counts for a draw
+        abstract int valueOf(long draw);
+
+        abstract String title();
+
+        abstract String label(int value);
+
+        @Override
+        public void accept(long draw) {
+            counts[valueOf(draw)]++;
+            total++;
+        }
+
+        @Override
+        public void merge(DrawAccumulator other) {
+            Histogram histogram = (Histogram) other;
+            for (int value = 0; value < counts.length; value++) {
+                counts[value] += histogram.counts[value];
+            }
+            total += histogram.total;
+        }
+
+        public long count(int value) {
+            return value < 0 || value >= counts.length ? 0 : counts[value];
+        }
+
+        public long[] counts() {
+            return counts.clone();
+        }
+
+        public long total() {
+            return total;
+        }
+
+        public double mean() {
+            long sum = 0;
+            for (int value = 0; value < counts.length; value++) {
+                sum += value * counts[value];
+            }
+            return total == 0 ? 0 : (double) sum / total;
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            out.println(title() + ": ");
+            for (int value = 0; value < counts.length; value++) {
+                if (counts[value] > 0) {
+                    double percent = (double) counts[value] / total * 100;
+                    out.println(label(value) + " - " + counts[value] + " times (" + String.format("%.2f", percent) + "%)");
+                }
+            }
+            out.println("Average: " + String.format("%.2f", mean()));
+        }
+    }
+
+    // Suggestion 1: Number Frequency Analysis
+    public static final class NumberFrequency implements DrawAccumulator {
+        final long[] regular = new long[PackedDraw.MAX_NUMBER];       // For numbers 1-35
+        final long[] powerball = new long[PackedDraw.MAX_POWERBALL];  // For Powerball numbers 1-20
+
+        @Override
+        public void accept(long draw) {
+            long mask = PackedDraw.mainMask(draw);
+            while (mask != 0) {
+                regular[Long.numberOfTrailingZeros(mask)]++;  // Bit n-1 holds number n
+                mask &= mask - 1;
+            }
+            powerball[PackedDraw.powerball(draw) - 1]++;
+        }
+
+        @Override
+        public NumberFrequency newEmpty() {
+            return new NumberFrequency();
+        }
+
+        @Override
+        public void merge(DrawAccumulator other) {
+            NumberFrequency frequency = (NumberFrequency) other;
+            for (int i = 0; i < regular.length; i++) {
+                regular[i] += frequency.regular[i];
+            }
+            for (int i = 0; i < powerball.length; i++) {
+                powerball[i] += frequency.powerball[i];
+            }
+        }
+
+        public long regular(int number) {
+            return regular[number - 1];
+        }
+
+        public long powerball(int number) {
+            return powerball[number - 1];
+        }
+
+        // Copies indexed by number - 1
+        public long[] regularFrequency() {
+            return regular.clone();
+        }
+
+        public long[] powerballFrequency() {
+            return powerball.clone();
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            out.println("Regular Number Frequency (1-35): ");
+            for (int i = 0; i < regular.length; i++) {
+                out.println((i + 1) + ": " + regular[i] + " times");
+            }
+
+            out.println("Powerball Number Frequency (1-20): ");
+            for (int i = 0; i < powerball.length; i++) {
+                out.println((i + 1) + ": " + powerball[i] + " times");
+            }
+        }
+    }
+
+    // Suggestion 2: Range Analysis (highest - lowest regular number)
+    public static final class RangeHistogram extends Histogram {
+        public RangeHistogram() {
+            super(PackedDraw.MAX_NUMBER - 1);
+        }
+
+        @Override
+        public RangeHistogram newEmpty() {
+            return new RangeHistogram();
+        }
+
+        @Override
+        int valueOf(long draw) {
+            return PackedDraw.range(draw);
+        }
+
+        @Override
+        String title() {
+            return "Range Analysis";
+        }
+
+        @Override
+        String label(int value) {
+            return "Range " + value;
+        }
+    }
+
+    // Suggestion 3: Sum of Numbers Analysis
+    public static final class SumHistogram extends Histogram {
+        // 29 + 30 + ... + 35
+        public static final int MAX_SUM = 224;
+
+        public SumHistogram() {
+            super(MAX_SUM);
+        }
+
+        @Override
+        public SumHistogram newEmpty() {
+            return new SumHistogram();
+        }
+
+        @Override
+        int valueOf(long draw) {
+            return PackedDraw.sum(draw);
+        }
+
+        @Override
+        String title() {
+            return "Sum of Numbers Analysis";
+        }
+
+        @Override
+        String label(int value) {
+            return "Sum " + value;
+        }
+    }
+
+    // Suggestion 4: Odd-Even Analysis for Powerball and Regular Numbers (indexed by odd count, 0-8)
+    public static final class OddEvenHistogram extends Histogram {
+        public OddEvenHistogram() {
+            super(PackedDraw.REGULAR_NUMBERS + 1);
+        }
+
+        @Override
+        public OddEvenHistogram newEmpty() {
+            return new OddEvenHistogram();
+        }
+
+        @Override
+        int valueOf(long draw) {
+            return PackedDraw.oddCountWithPowerball(draw);
+        }
+
+        @Override
+        String title() {
+            return "Odd-Even Analysis";
+        }
+
+        @Override
+        String label(int value) {
+            return "Odd-Even pattern: " + value + " odd, " + (PackedDraw.REGULAR_NUMBERS + 1 - value) + " even";
+        }
+    }
+
+    // Suggestion 5: Repeating Numbers Across Draws
+    // Regular numbers and Powerballs share one set, so a number repeats every time it
+    // turns up again after its first appearance
+    public static final class RepeatingNumbers implements DrawAccumulator {
+        final long[] occurrences = new long[PackedDraw.MAX_NUMBER + 1];
+
+        @Override
+        public void accept(long draw) {
+            long mask = PackedDraw.mainMask(draw);
+            while (mask != 0) {
+                occurrences[Long.numberOfTrailingZeros(mask) + 1]++;
+                mask &= mask - 1;
+            }
+            occurrences[PackedDraw.powerball(draw)]++;
+        }
+
+        @Override
+        public RepeatingNumbers newEmpty() {
+            return new RepeatingNumbers();
+        }
+
+        // Repeats only depend on how often each number turned up, so counts just add
+        @Override
+        public void merge(DrawAccumulator other) {
+            RepeatingNumbers repeating = (RepeatingNumbers) other;
+            for (int number = 0; number < occurrences.length; number++) {
+                occurrences[number] += repeating.occurrences[number];
+            }
+        }
+
+        // Times number appeared again after it was first seen
+        public long repeats(int number) {
+            return Math.max(0, occurrences[number] - 1);
+        }
+
+        public long totalRepeats() {
+            long total = 0;
+            for (int number = 1; number < occurrences.length; number++) {
+                total += repeats(number);
+            }
+            return total;
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            out.println("Repeating Numbers Across Draws: ");
+            for (int number = 1; number < occurrences.length; number++) {
+                out.println("Repeating number: " + number + " - " + repeats(number) + " times");
+            }
+        }
+    }
+
+    // Suggestion 6: Consecutive Numbers Analysis (adjacent pairs per draw, 0-6)
+    public static final class ConsecutiveHistogram extends Histogram {
+        public ConsecutiveHistogram() {
+            super(PackedDraw.REGULAR_NUMBERS - 1);
+        }
+
+        @Override
+        public ConsecutiveHistogram newEmpty() {
+            return new ConsecutiveHistogram();
+        }
+
+        @Override
+        int valueOf(long draw) {
+            return PackedDraw.consecutivePairs(draw);  // popcount(mask & mask >>> 1)
+        }
+
+        @Override
+        String title() {
+            return "Consecutive Numbers Analysis";
+        }
+
+        @Override
+        String label(int value) {
+            return "Number of consecutive numbers in draw: " + value;
+        }
+    }
+
+    // Suggestion 7: Powerball-Only Analysis
+    public static final class PowerballAnalysis implements DrawAccumulator {
+        final long[] frequency = new long[PackedDraw.MAX_POWERBALL];
+        long odd;
+        long total;
+
+        @Override
+        public void accept(long draw) {
+            int powerball = PackedDraw.powerball(draw);
+            frequency[powerball - 1]++;
+            odd += powerball & 1;
+            total++;
+        }
+
+        @Override
+        public PowerballAnalysis newEmpty() {
+            return new PowerballAnalysis();
+        }
+
+        @Override
+        public void merge(DrawAccumulator other) {
+            PowerballAnalysis analysis = (PowerballAnalysis) other;
+            for (int i = 0; i < frequency.length; i++) {
+                frequency[i] += analysis.frequency[i];
+            }
+            odd += analysis.odd;
+            total += analysis.total;
+        }
+
+        public long frequency(int powerball) {
+            return frequency[powerball - 1];
+        }
+
+        public long oddCount() {
+            return odd;
+        }
+
+        public long evenCount() {
+            return total - odd;
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            out.println("Powerball-Only Analysis: ");
+            out.println("Odd: " + odd + " times, Even: " + (total - odd) + " times");
+            int hottest = 0;
+            for (int i = 1; i < frequency.length; i++) {
+                if (frequency[i] > frequency[hottest]) {
+                    hottest = i;
+                }
+            }
+            out.println("Most frequent Powerball: " + (hottest + 1) + " (" + frequency[hottest] + " times)");
+        }
+    }
+
+    // Suggestion 8: Most Common Combinations (keyed by TicketIndex main rank in a primitive map)
+    public static final class CombinationCounts implements DrawAccumulator {
+        final LongLongHashMap counts = new LongLongHashMap(1024);
+
+        @Override
+        public void accept(long draw) {
+            counts.increment(TicketIndex.mainRank(draw));
+        }
+
+        @Override
+        public CombinationCounts newEmpty() {
+            return new CombinationCounts();
+        }
+
+        @Override
+        public void merge(DrawAccumulator other) {
+            counts.addAll(((CombinationCounts) other).counts);
+        }
+
+        public long count(long draw) {
+            return counts.get(TicketIndex.mainRank(draw));
+        }
+
+        public int distinct() {
+            return counts.size();
+        }
+
+        // Main number masks, most common first
+        public long[] mostCommon(int limit) {
+            long[] ranks = counts.keysByValueDescending(limit);
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = TicketIndex.unrankMain((int) ranks[i]);
+            }
+            return ranks;
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            out.println("Most Common Combinations: ");
+            for (long combination : mostCommon(Integer.MAX_VALUE)) {
+                out.println("Combination: " + PackedDraw.mainToString(combination) + " appeared " + count(combination) + " times");
+            }
+        }
+    }
+
+    // Lotto_Historical_Freq_distance2: average distance between the sorted numbers of a draw
+    // (Powerball included). The sorted distances add up to highest - lowest, so only the
+    // spans are summed and the division happens once at the end.
+    public static final class AverageDistance implements DrawAccumulator {
+        long totalSpan;
+        long draws;
+
+        @Override
+        public void accept(long draw) {
+            int powerball = PackedDraw.powerball(draw);
+            totalSpan += Math.max(PackedDraw.max(draw), powerball) - Math.min(PackedDraw.min(draw), powerball);
+            draws++;
+        }
+
+        @Override
+        public AverageDistance newEmpty() {
+            return new AverageDistance();
+        }
+
+        @Override
+        public void merge(DrawAccumulator other) {
+            AverageDistance distance = (AverageDistance) other;
+            totalSpan += distance.totalSpan;
+            draws += distance.draws;
+        }
+
+        public long draws() {
+            return draws;
+        }
+
+        // Mean over all draws of (highest - lowest) / 7
+        public double overallAverageDistance() {
+            return draws == 0 ? 0 : (double) totalSpan / (PackedDraw.REGULAR_NUMBERS * draws);
+        }
+
+        @Override
+        public void report(PrintStream out) {
+            if (draws > 0) {
+                out.println("Overall Average Distance: " + String.format("%.2f", overallAverageDistance()));
+            } else {
+                out.println("No valid draws to calculate average distance.");
+            }
+        }
+    }
+}
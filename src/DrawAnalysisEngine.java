@@ -0,0 +1,134 @@
+/*Runs any number of DrawAccumulator statistics in one pass over the draws
+ * Each analysis registers an accumulator, run() walks the draws once and updates
+ * every accumulator per draw, results are read from the accumulators afterwards:
+ *
+ *   DrawAnalysisEngine engine = new DrawAnalysisEngine();
+ *   DrawAnalyses.NumberFrequency frequency = engine.register(new DrawAnalyses.NumberFrequency());
+ *   DrawAnalyses.SumHistogram sums = engine.register(new DrawAnalyses.SumHistogram());
+ *   engine.run(draws);
+ *
+ * runParallel() does the same on a ForkJoinPool: the draws are cut into chunks, each chunk
+ * fills its own empty copies of the accumulators and the copies are merged back in draw
+ * order, giving the same results as run().
+ */
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class DrawAnalysisEngine {
+    // Draws handled by one task before it stops splitting
+    static final int CHUNK_SIZE = 1 << 14;
+
+    private final List<DrawAccumulator> accumulators = new ArrayList<>();
+    private DrawAccumulator[] active = new DrawAccumulator[0];
+    private long drawCount;
+
+    // Add an analysis, returns it so the caller keeps a typed handle on the result
+    public <A extends DrawAccumulator> A register(A accumulator) {
+        accumulators.add(accumulator);
+        active = accumulators.toArray(new DrawAccumulator[0]);
+        return accumulator;
+    }
+
+    public List<DrawAccumulator> accumulators() {
+        return accumulators;
+    }
+
+    // One pass over all the draws, every accumulator sees each draw once
+    public DrawAnalysisEngine run(long[] draws) {
+        return run(draws, 0, draws.length);
+    }
+
+    public DrawAnalysisEngine run(long[] draws, int from, int to) {
+        DrawAccumulator[] active = this.active;
+        for (int i = from; i < to; i++) {
+            long draw = draws[i];
+            for (DrawAccumulator accumulator : active) {
+                accumulator.accept(draw);
+            }
+        }
+        drawCount += to - from;
+        return this;
+    }
+
+    // Same as run() but spread over every core
+    public DrawAnalysisEngine runParallel(long[] draws) {
+        return runParallel(draws, ForkJoinPool.commonPool());
+    }
+
+    public DrawAnalysisEngine runParallel(long[] draws, ForkJoinPool pool) {
+        if (draws.length <= CHUNK_SIZE) {
+            return run(draws);
+        }
+        DrawAccumulator[] result = pool.invoke(new ChunkTask(active, draws, 0, draws.length));
+        for (int i = 0; i < active.length; i++) {
+            active[i].merge(result[i]);
+        }
+        drawCount += draws.length;
+        return this;
+    }
+
+    // Feed a single draw (for streaming sources)
+    public void accept(long draw) {
+        for (DrawAccumulator accumulator : active) {
+            accumulator.accept(draw);
+        }
+        drawCount++;
+    }
+
+    public long drawCount() {
+        return drawCount;
+    }
+
+    // Print every registered analysis
+    public void report(PrintStream out) {
+        for (DrawAccumulator accumulator : accumulators) {
+            accumulator.report(out);
+        }
+    }
+
+    // Splits the draws in half until a chunk is small enough, then accumulates it
+    @SuppressWarnings("serial")  // Fork/join tasks are never serialized
+    private static final class ChunkTask extends RecursiveTask<DrawAccumulator[]> {
+        private final DrawAccumulator[] prototypes;
+        private final long[] draws;
+        private final int from;
+        private final int to;
+
+        ChunkTask(DrawAccumulator[] prototypes, long[] draws, int from, int to) {
+            this.prototypes = prototypes;
+            this.draws = draws;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DrawAccumulator[] compute() {
+            if (to - from <= CHUNK_SIZE) {
+                DrawAccumulator[] chunk = new DrawAccumulator[prototypes.length];
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = prototypes[i].newEmpty();
+                }
+                for (int d = from; d < to; d++) {
+                    long draw = draws[d];
+                    for (DrawAccumulator accumulator : chunk) {
+                        accumulator.accept(draw);
+                    }
+                }
+                return chunk;
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask right = new ChunkTask(prototypes, draws, middle, to);
+            right.fork();
+            DrawAccumulator[] left = new ChunkTask(prototypes, draws, from, middle).compute();
+            DrawAccumulator[] rightResult = right.join();
+            for (int i = 0; i < left.length; i++) {
+                left[i].merge(rightResult[i]);  // Left half first keeps draw order
+            }
+            return left;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*Streaming CSV draw reader shared by the historical analysers
+ * Reads powerball_results*.csv style files ("9,10,12,15,20,29,30,16,Powerball Draw 1480 dividends")
+ * - The file is memory mapped (in windows, so files over 2 GB work too) and the digits are
+ *   parsed straight from the bytes, no String / String[] per line
+ * - The regular numbers and Powerball go into a PackedDraw long, the draw number is picked
+ *   out of the trailing label when there is one (0 for the no label files)
+ * - Rows that aren't draws (header, blank or broken lines) are skipped and counted
+ * - Use it as a cursor (next() / draw() / drawNumber()), a LongStream or readAll()
+ *
+ * Older rows (5 from 45, 6 from 40) come through as well, check PackedDraw.isCurrentGame()
+ * when only 7 + 1 Powerball draws are wanted.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+public final class DrawCsvReader implements AutoCloseable {
+    // Largest slice of the file mapped at once
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;  // Offset of the next line inside the window
+    private int limit;
+
+    private long draw;
+    private int drawNumber;
+    private int skipped;
+    private int lineNumber;
+
+    public DrawCsvReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        map(0);
+    }
+
+    public static DrawCsvReader open(String filePath) throws IOException {
+        return new DrawCsvReader(Paths.get(filePath));
+    }
+
+    // Read every draw in file order
+    public static long[] readAll(String filePath) throws IOException {
+        try (DrawCsvReader reader = open(filePath)) {
+            long[] draws = new long[256];
+            int count = 0;
+            while (reader.next()) {
+                if (count == draws.length) {
+                    draws = Arrays.copyOf(draws, count * 2);
+                }
+                draws[count++] = reader.draw();
+            }
+            return Arrays.copyOf(draws, count);
+        }
+    }
+
+    // Move to the next draw, false at the end of the file
+    public boolean next() throws IOException {
+        while (true) {
+            if (position >= limit) {
+                if (windowStart + limit >= fileSize) {
+                    return false;
+                }
+                map(windowStart + limit);
+            }
+
+            // Find the end of the line, remapping if it runs past the window
+            int end = indexOfNewline(position);
+            if (end < 0) {
+                if (windowStart + limit < fileSize) {
+                    if (position == 0) {
+                        // The line already starts the window, remapping would find the same bytes
+                        throw new IOException("Line " + (lineNumber + 1) + " longer than " + WINDOW_SIZE + " bytes");
+                    }
+                    map(windowStart + position);
+                    continue;
+                }
+                end = limit;
+            }
+
+            int start = position;
+            position = end + 1;
+            lineNumber++;
+            if (parseLine(start, end)) {
+                return true;
+            }
+            if (end > start && !(end == start + 1 && window.get(start) == '\r')) {
+                skipped++;  // Blank lines aren't counted
+            }
+        }
+    }
+
+    // Current draw (PackedDraw long)
+    public long draw() {
+        return draw;
+    }
+
+    // Draw number from the "Powerball Draw N dividends" label, 0 when the row has no label
+    public int drawNumber() {
+        return drawNumber;
+    }
+
+    // Rows that weren't draws so far (headers, broken lines)
+    public int skipped() {
+        return skipped;
+    }
+
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    // Remaining draws as a stream, closing the stream closes the reader
+    public LongStream stream() {
+        Spliterator.OfLong spliterator = new Spliterators.AbstractLongSpliterator(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                try {
+                    if (!next()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                action.accept(draw);
+                return true;
+            }
+        };
+        return StreamSupport.longStream(spliterator, false).onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        long size = Math.min(WINDOW_SIZE, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        position = 0;
+        limit = (int) size;
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Parse one line [start, end) into draw / drawNumber, false if it isn't a draw
+    private boolean parseLine(int start, int end) {
+        MappedByteBuffer buffer = window;
+        long mask = 0L;
+        int pending = -1;  // Last number seen, it becomes the Powerball if no more numbers follow
+        int label = 0;
+        int i = start;
+
+        while (i < end) {
+            // Trim leading spaces of the field
+            byte b = buffer.get(i);
+            while ((b == ' ' || b == '\t') && ++i < end) {
+                b = buffer.get(i);
+            }
+            if (i >= end || b == ',' || b == '\r') {
+                i++;  // Empty field
+                continue;
+            }
+
+            int fieldStart = i;
+            int value = 0;
+            int digits = 0;
+            while (b >= '0' && b <= '9') {
+                value = Math.min(value * 10 + (b - '0'), 1000);  // Only needs to tell 1-63 from too big
+                digits++;
+                if (++i >= end) {
+                    break;
+                }
+                b = buffer.get(i);
+            }
+            while (i < end && (b == ' ' || b == '\t' || b == '\r')) {
+                if (++i < end) {
+                    b = buffer.get(i);
+                }
+            }
+
+            if (digits > 0 && (i >= end || b == ',')) {
+                if (digits > 3) {
+                    return false;  // "1234" isn't a ball number, don't split it into 123 and a label
+                }
+                // A number field, the previous number was a regular number
+                if (pending >= 0) {
+                    if (pending < 1 || pending > PackedDraw.MAX_ENCODED_NUMBER) {
+                        return false;
+                    }
+                    long bit = 1L << (pending - 1);
+                    if ((mask & bit) != 0) {
+                        return false;  // Repeated number
+                    }
+                    mask |= bit;
+                }
+                pending = value;
+                i++;
+                continue;
+            }
+
+            // Label field, e.g. "Powerball Draw 1480 dividends" - keep the first run of digits
+            for (i = fieldStart; i < end; i++) {
+                b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    label = label * 10 + (b - '0');
+                } else if (label > 0) {
+                    break;
+                }
+            }
+            break;
+        }
+
+        if (mask == 0 || pending < 1 || pending > PackedDraw.MAX_ENCODED_POWERBALL) {
+            return false;
+        }
+        draw = PackedDraw.of(mask, pending);
+        drawNumber = label;
+        return true;
+    }
+}
@@ -0,0 +1,143 @@
+/*Reusable draw generator engine (7 regular numbers 1-35 + 1 Powerball 1-20)
+ * - Partial Fisher-Yates shuffle over a preallocated 35 slot pool, so every pick is
+ *   used (no duplicate check / retry) and nothing is allocated per draw
+ * - nextOddEven() samples an exact odd/even split straight from the 18 odd and
+ *   17 even numbers, so skewed splits like 7 odd + 0 even cost the same as 4 + 3
+ * - nextWeighted() draws by historical frequency (alias tables, see FrequencyWeights)
+ * - Writes into a caller supplied int[] buffer or returns a PackedDraw long
+ * - The random source is pluggable (any java.util.random.RandomGenerator, e.g.
+ *   SplittableRandom or L64X128MixRandom), current() hands out one generator per
+ *   thread seeded once when the thread first uses it
+ *
+ * Not thread safe, each thread should use its own instance.
+ */
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+public final class DrawGenerator {
+    // Algorithm used by current(), override with -Dpowerball.rng=L64X128MixRandom
+    public static final String DEFAULT_ALGORITHM = System.getProperty("powerball.rng", "SplittableRandom");
+
+    private static final ThreadLocal<DrawGenerator> PER_THREAD =
+            ThreadLocal.withInitial(() -> new DrawGenerator(RandomGeneratorFactory.of(DEFAULT_ALGORITHM).create()));
+
+    private final RandomGenerator random;
+
+    // Always holds a permutation of 1-35, the shuffle only ever swaps inside it
+    private final int[] pool = new int[PackedDraw.MAX_NUMBER];
+
+    // Permutations of the odd (1, 3 .. 35) and even (2, 4 .. 34) numbers
+    private final int[] oddPool = new int[(PackedDraw.MAX_NUMBER + 1) / 2];
+    private final int[] evenPool = new int[PackedDraw.MAX_NUMBER / 2];
+
+    // Working copy of a FrequencyWeights tree (skewed weights only), allocated on first weighted draw
+    private long[] weightScratch;
+
+    public DrawGenerator(RandomGenerator random) {
+        this.random = random;
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = i + 1;
+        }
+        for (int i = 0; i < oddPool.length; i++) {
+            oddPool[i] = 2 * i + 1;
+        }
+        for (int i = 0; i < evenPool.length; i++) {
+            evenPool[i] = 2 * i + 2;
+        }
+    }
+
+    // Seeded generator using the SplittableRandom algorithm (reproducible output)
+    public DrawGenerator(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    // Generator backed by a named algorithm, e.g. "L64X128MixRandom"
+    public static DrawGenerator of(String algorithm, long seed) {
+        return new DrawGenerator(RandomGeneratorFactory.of(algorithm).create(seed));
+    }
+
+    // Generator for the calling thread
+    public static DrawGenerator current() {
+        return PER_THREAD.get();
+    }
+
+    public RandomGenerator random() {
+        return random;
+    }
+
+    // Generate a draw as a PackedDraw long
+    public long next() {
+        return PackedDraw.of(nextMainMask(), nextPowerball());
+    }
+
+    // Generate a draw into out[offset .. offset+7] (7 regular numbers in draw order + Powerball)
+    public void next(int[] out, int offset) {
+        int[] pool = this.pool;
+        for (int i = 0; i < PackedDraw.REGULAR_NUMBERS; i++) {
+            int j = i + random.nextInt(pool.length - i);
+            int picked = pool[j];
+            pool[j] = pool[i];
+            pool[i] = picked;
+            out[offset + i] = picked;
+        }
+        out[offset + PackedDraw.REGULAR_NUMBERS] = nextPowerball();
+    }
+
+    // Fill a buffer with count packed draws starting at offset
+    public void fill(long[] out, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            out[i] = next();
+        }
+    }
+
+    // 7 distinct regular numbers as a main number mask
+    public long nextMainMask() {
+        return pick(pool, PackedDraw.REGULAR_NUMBERS);
+    }
+
+    // Generate a draw with exactly oddCount odd and evenCount even regular numbers
+    public long nextOddEven(int oddCount, int evenCount) {
+        return PackedDraw.of(nextOddEvenMask(oddCount, evenCount), nextPowerball());
+    }
+
+    // Main number mask with a fixed odd/even split, always exactly 7 picks
+    public long nextOddEvenMask(int oddCount, int evenCount) {
+        checkOddEven(oddCount, evenCount);
+        return pick(oddPool, oddCount) | pick(evenPool, evenCount);
+    }
+
+    // Reject splits that can't make a valid draw
+    public static void checkOddEven(int oddCount, int evenCount) {
+        if (oddCount < 0 || evenCount < 0 || oddCount + evenCount != PackedDraw.REGULAR_NUMBERS) {
+            throw new IllegalArgumentException("Odd/even split must add up to " + PackedDraw.REGULAR_NUMBERS
+                    + ": " + oddCount + " odd, " + evenCount + " even");
+        }
+    }
+
+    // Partial Fisher-Yates: take count distinct values from the pool as a mask
+    private long pick(int[] pool, int count) {
+        long mask = 0L;
+        for (int i = 0; i < count; i++) {
+            // Swap a random slot from the unused tail into position i
+            int j = i + random.nextInt(pool.length - i);
+            int picked = pool[j];
+            pool[j] = pool[i];
+            pool[i] = picked;
+            mask |= 1L << (picked - 1);
+        }
+        return mask;
+    }
+
+    // Draw weighted by historical frequencies (see FrequencyWeights)
+    public long nextWeighted(FrequencyWeights weights) {
+        if (weightScratch == null) {
+            weightScratch = new long[FrequencyWeights.TREE_SIZE];
+        }
+        return PackedDraw.of(weights.nextMainMask(random, weightScratch), weights.nextPowerball(random));
+    }
+
+    public int nextPowerball() {
+        return random.nextInt(PackedDraw.MAX_POWERBALL) + 1;
+    }
+}
@@ -0,0 +1,364 @@
+/*Compact binary draw history (.pbd) with CSV import/export
+ * Loading it is a single mmap instead of a text parse. Layout (little endian):
+ *
+ *   header (64 bytes)
+ *     0  int   magic "PBDH"
+ *     4  short version
+ *     6  byte  regular number pool (35)       8  byte regular numbers per draw (7)
+ *     7  byte  Powerball pool (20)            9  byte Powerball picks (1)
+ *              (bytes 6-9 are 0 when some draws are from the older game formats, e.g. 6 from 40)
+ *     12 int   flags (INDEXED when the draw numbers are consecutive)
+ *     16 long  record count
+ *     24 int   first draw number   28 int last draw number
+ *   records, one fixed width 16 byte record per draw, oldest draw first
+ *     0  int   draw number (0 when the source CSV had no labels)
+ *     4  int   reserved
+ *     8  long  PackedDraw (main number bitmask + Powerball)
+ *
+ * Records are stored in draw number order, so lookups by draw number are a direct
+ * index when the numbers are consecutive (the normal case) and a binary search otherwise.
+ *
+ * run using java -cp ../bin DrawHistoryFile import powerball_results.csv powerball_results.pbd
+ *           java -cp ../bin DrawHistoryFile export powerball_results.pbd powerball_results.csv
+ */
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public final class DrawHistoryFile implements AutoCloseable {
+    public static final String EXTENSION = ".pbd";
+
+    static final int MAGIC = 0x48444250;  // "PBDH" read little endian
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 16;
+    static final int FLAG_INDEXED = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int firstDrawNumber;
+    private final int lastDrawNumber;
+    private final boolean indexed;
+    private final int regularPool;
+    private final int powerballPool;
+    private final int regularPicks;
+
+    private DrawHistoryFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a draw history file");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported draw history version: " + buffer.getShort(4));
+        }
+        regularPool = buffer.get(6);
+        powerballPool = buffer.get(7);
+        regularPicks = buffer.get(8);
+        indexed = (buffer.getInt(12) & FLAG_INDEXED) != 0;
+        long records = buffer.getLong(16);
+        if (records < 0 || records > Integer.MAX_VALUE) {
+            throw new IOException("Bad draw history record count: " + records);
+        }
+        if (HEADER_SIZE + records * RECORD_SIZE > channel.size()) {
+            throw new IOException("Draw history file is truncated");
+        }
+        count = (int) records;
+        firstDrawNumber = buffer.getInt(24);
+        lastDrawNumber = buffer.getInt(28);
+    }
+
+    // Map a history file read only
+    public static DrawHistoryFile open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new DrawHistoryFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();  // Not a usable history, don't leak the descriptor
+            throw e;
+        }
+    }
+
+    // Load draws from either a .pbd file or a CSV, oldest draw first (older game formats included)
+    public static long[] loadDraws(String filePath) throws IOException {
+        if (filePath.endsWith(EXTENSION)) {
+            try (DrawHistoryFile history = open(filePath)) {
+                return history.draws();
+            }
+        }
+        long[] draws = new long[256];
+        int count = 0;
+        int firstNumber = 0;
+        int lastNumber = 0;
+        try (DrawCsvReader reader = DrawCsvReader.open(filePath)) {
+            while (reader.next()) {
+                if (count == draws.length) {
+                    draws = Arrays.copyOf(draws, count * 2);
+                }
+                draws[count++] = reader.draw();
+                firstNumber = count == 1 ? reader.drawNumber() : firstNumber;
+                lastNumber = reader.drawNumber();
+            }
+        }
+        draws = Arrays.copyOf(draws, count);
+        // Scraped files are newest first, files without labels are assumed to be too
+        if (firstNumber >= lastNumber) {
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                long swap = draws[i];
+                draws[i] = draws[j];
+                draws[j] = swap;
+            }
+        }
+        return draws;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("import")) {
+            int count = importCsv(args[1], args[2]);
+            System.out.println("Imported " + count + " draws into " + args[2]);
+        } else if (args.length == 3 && args[0].equals("export")) {
+            int count = exportCsv(args[1], args[2]);
+            System.out.println("Exported " + count + " draws to " + args[2]);
+        } else if (args.length == 2 && args[0].equals("info")) {
+            try (DrawHistoryFile history = open(args[1])) {
+                System.out.println(history);
+            }
+        } else {
+            System.out.println("Usage: DrawHistoryFile import <csv> <pbd> | export <pbd> <csv> | info <pbd>");
+        }
+    }
+
+    // Convert a CSV (with or without labels) into a .pbd file
+    public static int importCsv(String csvFile, String historyFile) throws IOException {
+        int[] drawNumbers = new int[256];
+        long[] draws = new long[256];
+        int count = 0;
+        try (DrawCsvReader reader = DrawCsvReader.open(csvFile)) {
+            while (reader.next()) {
+                if (count == draws.length) {
+                    draws = Arrays.copyOf(draws, count * 2);
+                    drawNumbers = Arrays.copyOf(drawNumbers, count * 2);
+                }
+                drawNumbers[count] = reader.drawNumber();
+                draws[count++] = reader.draw();
+            }
+        }
+        write(historyFile, Arrays.copyOf(drawNumbers, count), Arrays.copyOf(draws, count));
+        return count;
+    }
+
+    // Convert a .pbd file back to the scraper's CSV layout (newest draw first)
+    public static int exportCsv(String historyFile, String csvFile) throws IOException {
+        try (DrawHistoryFile history = open(historyFile);
+             Writer writer = new BufferedWriter(new FileWriter(csvFile))) {
+            StringBuilder line = new StringBuilder(64);
+            for (int i = history.size() - 1; i >= 0; i--) {
+                line.setLength(0);
+                PackedDraw.appendNumbers(line, history.draw(i), ",");
+                if (history.drawNumber(i) > 0) {
+                    line.append(",Powerball Draw ").append(history.drawNumber(i)).append(" dividends");
+                }
+                writer.write(line.append('\n').toString());
+            }
+            return history.size();
+        }
+    }
+
+    // Write a history file, drawNumbers / draws may be in any order (CSV files are newest first)
+    public static void write(String historyFile, int[] drawNumbers, long[] draws) throws IOException {
+        int count = draws.length;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        boolean labelled = count > 0 && Arrays.stream(drawNumbers).allMatch(n -> n > 0);
+        if (labelled) {
+            Arrays.sort(order, (a, b) -> Integer.compare(drawNumbers[a], drawNumbers[b]));
+        } else {
+            // No labels - the CSV files are newest first, so reverse them
+            for (int i = 0; i < count / 2; i++) {
+                Integer t = order[i];
+                order[i] = order[count - 1 - i];
+                order[count - 1 - i] = t;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        out.position(HEADER_SIZE);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int drawNumber = labelled ? drawNumbers[order[i]] : 0;
+            if (labelled && drawNumber == previous) {
+                continue;  // Same draw listed twice
+            }
+            out.putInt(drawNumber).putInt(0).putLong(draws[order[i]]);
+            previous = drawNumber;
+        }
+        int written = (out.position() - HEADER_SIZE) / RECORD_SIZE;
+        int first = labelled ? drawNumbers[order[0]] : 0;
+        int last = labelled ? previous : 0;
+        writeHeader(out, written, first, last, labelled && last - first + 1 == written, allCurrentGame(draws, count));
+
+        Path path = Paths.get(historyFile);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, Arrays.copyOf(out.array(), HEADER_SIZE + written * RECORD_SIZE));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Add draws newer than the last stored one, drawNumbers must be ascending and above
+    // lastDrawNumber(). Records go in first and the header is rewritten last, so a crash
+    // part way leaves the file as it was (the extra bytes are ignored and overwritten next time).
+    // Creates the file when it doesn't exist yet.
+    public static void append(String historyFile, int[] drawNumbers, long[] draws, int count) throws IOException {
+        Path path = Paths.get(historyFile);
+        if (!Files.exists(path)) {
+            write(historyFile, Arrays.copyOf(drawNumbers, count), Arrays.copyOf(draws, count));
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION) {
+                throw new IOException("Not a draw history file: " + historyFile);
+            }
+            long stored = header.getLong(16);
+            boolean currentGame = (stored == 0 || header.get(6) != 0) && allCurrentGame(draws, count);
+            int first = header.getInt(24);
+            int last = header.getInt(28);
+            if (stored > 0 && last == 0) {
+                throw new IOException("History has no draw numbers, it can't be appended to: " + historyFile);
+            }
+
+            ByteBuffer records = ByteBuffer.allocate(count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            boolean consecutive = stored == 0 || (header.getInt(12) & FLAG_INDEXED) != 0;
+            int previous = last;
+            for (int i = 0; i < count; i++) {
+                if (drawNumbers[i] <= previous) {
+                    throw new IllegalArgumentException("Draw " + drawNumbers[i] + " isn't newer than " + previous);
+                }
+                consecutive &= previous == 0 || drawNumbers[i] == previous + 1;
+                records.putInt(drawNumbers[i]).putInt(0).putLong(draws[i]);
+                previous = drawNumbers[i];
+            }
+            records.flip();
+            long position = HEADER_SIZE + stored * RECORD_SIZE;
+            while (records.hasRemaining()) {
+                position += channel.write(records, position);
+            }
+            channel.force(false);
+
+            writeHeader(header, stored + count, stored == 0 ? drawNumbers[0] : first, previous, consecutive, currentGame);
+            header.clear();
+            channel.write(header, 0);
+            channel.force(false);
+        }
+    }
+
+    // The game rules only go in when every draw follows them, a mixed history records none
+    static void writeHeader(ByteBuffer out, long count, int firstDrawNumber, int lastDrawNumber, boolean indexed,
+                            boolean currentGame) {
+        out.putInt(0, MAGIC)
+                .putShort(4, VERSION)
+                .put(6, (byte) (currentGame ? PackedDraw.MAX_NUMBER : 0))
+                .put(7, (byte) (currentGame ? PackedDraw.MAX_POWERBALL : 0))
+                .put(8, (byte) (currentGame ? PackedDraw.REGULAR_NUMBERS : 0))
+                .put(9, (byte) (currentGame ? 1 : 0))
+                .putInt(12, indexed ? FLAG_INDEXED : 0)
+                .putLong(16, count)
+                .putInt(24, firstDrawNumber)
+                .putInt(28, lastDrawNumber);
+    }
+
+    private static boolean allCurrentGame(long[] draws, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!PackedDraw.isCurrentGame(draws[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long draw(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE + 8);
+    }
+
+    public int drawNumber(int index) {
+        return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    public int firstDrawNumber() {
+        return firstDrawNumber;
+    }
+
+    // Highest draw number stored (0 when the file has no draw numbers)
+    public int lastDrawNumber() {
+        return lastDrawNumber;
+    }
+
+    // Record index of a draw number, -1 if it isn't stored
+    public int indexOf(int drawNumber) {
+        if (count == 0 || drawNumber < firstDrawNumber || drawNumber > lastDrawNumber || drawNumber <= 0) {
+            return -1;
+        }
+        if (indexed) {
+            return drawNumber - firstDrawNumber;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = drawNumber(mid);
+            if (value < drawNumber) {
+                low = mid + 1;
+            } else if (value > drawNumber) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Draw for a draw number, PackedDraw.EMPTY if it isn't stored
+    public long find(int drawNumber) {
+        int index = indexOf(drawNumber);
+        return index < 0 ? PackedDraw.EMPTY : draw(index);
+    }
+
+    // Every draw, oldest first
+    public long[] draws() {
+        long[] draws = new long[count];
+        for (int i = 0; i < count; i++) {
+            draws[i] = draw(i);
+        }
+        return draws;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "Draw history: " + count + " draws, "
+                + (regularPool > 0 ? "game " + regularPicks + " from " + regularPool + " + Powerball 1-" + powerballPool
+                                   : "mixed game formats")
+                + (firstDrawNumber > 0 ? ", draws " + firstDrawNumber + "-" + lastDrawNumber : ", no draw numbers")
+                + (indexed ? " (indexed)" : "");
+    }
+}
@@ -0,0 +1,207 @@
+/*Incremental ingestion of scraped draws into a .pbd draw history
+ * Only draws newer than the last draw number already stored are kept, duplicates are dropped,
+ * and they're appended to the history in draw order (DrawHistoryFile.append), no rewrite.
+ * Each commit publishes a Change to the listeners (e.g. StatisticsStore) with just the new draws.
+ *
+ * Sources are newest first (the archive pages and the scraper CSV), so reading stops at the
+ * first draw that's already stored - an hourly refresh reads a row or two, not the whole history.
+ * Rows without a draw number (no "Powerball Draw N" label) can't be placed in the history, they're
+ * skipped and counted (unlabelled()) rather than taken as the point where stored draws begin.
+ *
+ * run using java -cp ../bin:../bin/jsoup-1.18.1.jar DrawIngestor <history.pbd> <csv | url> [stats.snapshot]
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class DrawIngestor {
+    // Draws added by one commit, oldest first
+    public static final class Change {
+        public final int[] drawNumbers;
+        public final long[] draws;
+
+        Change(int[] drawNumbers, long[] draws) {
+            this.drawNumbers = drawNumbers;
+            this.draws = draws;
+        }
+
+        public int size() {
+            return draws.length;
+        }
+
+        public boolean isEmpty() {
+            return draws.length == 0;
+        }
+    }
+
+    // Told about every non-empty commit, after the draws are safely in the history file
+    public interface Listener {
+        void drawsAppended(Change change) throws IOException;
+    }
+
+    private final String historyFile;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final TreeMap<Integer, Long> pending = new TreeMap<>();
+    private int lastStored;
+    private int unlabelled;
+
+    public DrawIngestor(String historyFile) throws IOException {
+        this.historyFile = historyFile;
+        if (Files.exists(Paths.get(historyFile))) {
+            try (DrawHistoryFile history = DrawHistoryFile.open(historyFile)) {
+                if (history.size() > 0 && history.lastDrawNumber() == 0) {
+                    throw new IOException("History has no draw numbers, re-import it from a labelled CSV: " + historyFile);
+                }
+                lastStored = history.lastDrawNumber();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: DrawIngestor <history.pbd> <csv | url> [stats.snapshot]");
+            return;
+        }
+        DrawIngestor ingestor = new DrawIngestor(args[0]);
+        Path snapshot = args.length > 2 ? Paths.get(args[2]) : null;
+        StatisticsStore store = snapshot != null ? ingestor.attachStatistics(snapshot) : null;
+
+        int before = ingestor.lastStored();
+        if (args[1].startsWith("http://") || args[1].startsWith("https://")) {
+            ingestor.offerPage(args[1]);
+        } else {
+            ingestor.offerCsv(args[1]);
+        }
+        Change change = ingestor.commit();
+        if (store != null) {
+            store.save(snapshot);
+        }
+        System.out.println("Appended " + change.size() + " draws (last draw " + before + " -> " + ingestor.lastStored() + ")");
+        if (ingestor.unlabelled() > 0) {
+            System.err.println("Skipped " + ingestor.unlabelled() + " rows without a draw number");
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Load (or start) a statistics snapshot, bring it up to the draws already in the history
+    // and have it follow every commit from now on
+    public StatisticsStore attachStatistics(Path snapshot) throws IOException {
+        StatisticsStore store = Files.exists(snapshot) ? StatisticsStore.load(snapshot) : new StatisticsStore();
+        if (Files.exists(Paths.get(historyFile))) {
+            store.appendNewer(historyFile);
+        }
+        addListener(store);
+        return store;
+    }
+
+    // Highest draw number in the history (including committed draws)
+    public int lastStored() {
+        return lastStored;
+    }
+
+    // Rows skipped so far because they had no draw number
+    public int unlabelled() {
+        return unlabelled;
+    }
+
+    // Queue a draw, false when it's already stored
+    public boolean offer(int drawNumber, long draw) {
+        if (drawNumber <= 0) {
+            throw new IllegalArgumentException("Draw has no draw number: " + PackedDraw.toString(draw));
+        }
+        if (drawNumber <= lastStored) {
+            return false;
+        }
+        pending.putIfAbsent(drawNumber, draw);  // First copy of a repeated draw wins
+        return true;
+    }
+
+    // Queue the new draws of a newest-first CSV, stopping at the first one already stored
+    public int offerCsv(String csvFile) throws IOException {
+        int offered = 0;
+        try (DrawCsvReader reader = DrawCsvReader.open(csvFile)) {
+            while (reader.next()) {
+                if (reader.drawNumber() == 0) {
+                    unlabelled++;
+                    continue;
+                }
+                if (!offer(reader.drawNumber(), reader.draw())) {
+                    break;
+                }
+                offered++;
+            }
+        }
+        return offered;
+    }
+
+    // Queue the new draws of a newest-first archive page, the rest of the page isn't parsed
+    public int offerPage(Reader page, String baseUri) throws IOException {
+        int[] offered = {0};
+        ArchivePageParser.parseWhile(page, baseUri, row -> {
+            if (row.drawNumber == 0) {
+                unlabelled++;
+                return true;
+            }
+            if (!offer(row.drawNumber, row.draw)) {
+                return false;
+            }
+            offered[0]++;
+            return true;
+        });
+        return offered[0];
+    }
+
+    public int offerPage(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
+        HttpResponse<InputStream> response = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build()
+                .send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (Reader page = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode() + " for " + url);
+            }
+            return offerPage(page, url);
+        }
+    }
+
+    // Append the queued draws to the history and tell the listeners, returns what was added
+    public Change commit() throws IOException {
+        int[] drawNumbers = new int[pending.size()];
+        long[] draws = new long[pending.size()];
+        int count = 0;
+        for (Map.Entry<Integer, Long> entry : pending.entrySet()) {
+            drawNumbers[count] = entry.getKey();
+            draws[count++] = entry.getValue();
+        }
+        pending.clear();
+
+        Change change = new Change(drawNumbers, draws);
+        if (change.isEmpty()) {
+            return change;
+        }
+        DrawHistoryFile.append(historyFile, drawNumbers, draws, count);
+        lastStored = drawNumbers[count - 1];
+        for (Listener listener : listeners) {
+            listener.drawsAppended(change);
+        }
+        return change;
+    }
+}
@@ -0,0 +1,208 @@
+/*Sampling weights from historical number frequencies (the regularFreq / powerballFreq arrays of
+ * Lotto_Historical_draft2.numberFrequencyAnalysis, or a StatisticsStore snapshot)
+ * Every number gets weight frequency + 1, so a number never drawn can still come up.
+ * - Main numbers and the Powerball come from Walker / Vose alias tables, O(1) per pick from a
+ *   single random long. The 7 mains are drawn without replacement by redrawing any number
+ *   that's already taken, which gives exactly the odds of taking it out and renormalising
+ * - When a few numbers carry most of the weight the redraws would pile up, so skewed weights
+ *   use a Fenwick (binary indexed) tree instead: finding and removing a number are both O(log 35)
+ * The tables are immutable and shared, of() hands back the same instance while the
+ * frequencies stay the same, so they're only rebuilt when the snapshot changes.
+ * Samplers keep their own scratch copy of the tree (see DrawGenerator.nextWeighted).
+ */
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+public final class FrequencyWeights {
+    // Fenwick tree size, a power of two above 35 so the search can walk down by halving
+    // (slots for 36-63 just hold zero weights)
+    static final int TREE_SIZE = 64;
+
+    // Alias coin resolution, 30 random bits (1 << 31 would overflow an int)
+    private static final int COIN = 1 << 30;
+
+    private static FrequencyWeights cached;
+
+    private final long[] regularFrequency;
+    private final long[] powerballFrequency;
+    private final long[] tree = new long[TREE_SIZE];  // 1-based, slot n covers number n
+    private final boolean skewed;                     // Mains use the tree rather than the alias table
+    private final int[] mainThreshold = new int[PackedDraw.MAX_NUMBER];
+    private final int[] mainAlias = new int[PackedDraw.MAX_NUMBER];
+    private final int[] powerballThreshold = new int[PackedDraw.MAX_POWERBALL];
+    private final int[] powerballAlias = new int[PackedDraw.MAX_POWERBALL];
+
+    private FrequencyWeights(long[] regularFrequency, long[] powerballFrequency) {
+        this.regularFrequency = regularFrequency;
+        this.powerballFrequency = powerballFrequency;
+
+        long[] mainWeights = new long[PackedDraw.MAX_NUMBER];
+        for (int n = 1; n <= PackedDraw.MAX_NUMBER; n++) {
+            mainWeights[n - 1] = weight(n);
+            // Fenwick tree: add each weight to the slots covering it
+            for (int i = n; i < TREE_SIZE; i += i & -i) {
+                tree[i] += mainWeights[n - 1];
+            }
+        }
+        buildAlias(mainWeights, mainThreshold, mainAlias);
+
+        long[] powerballWeights = new long[PackedDraw.MAX_POWERBALL];
+        for (int i = 0; i < PackedDraw.MAX_POWERBALL; i++) {
+            powerballWeights[i] = powerballFrequency[i] + 1L;
+        }
+        buildAlias(powerballWeights, powerballThreshold, powerballAlias);
+
+        // Redraws stay cheap while the 6 numbers that can already be taken hold under half the weight
+        long[] sorted = mainWeights.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        long heaviest = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            total += sorted[i];
+            if (i >= sorted.length - (PackedDraw.REGULAR_NUMBERS - 1)) {
+                heaviest += sorted[i];
+            }
+        }
+        skewed = heaviest * 2 > total;
+    }
+
+    // Weights for these frequencies (indexed by number - 1), reusing the last tables when unchanged
+    public static synchronized FrequencyWeights of(long[] regularFrequency, long[] powerballFrequency) {
+        if (regularFrequency.length != PackedDraw.MAX_NUMBER || powerballFrequency.length != PackedDraw.MAX_POWERBALL) {
+            throw new IllegalArgumentException("Need 35 regular and 20 Powerball frequencies");
+        }
+        if (cached == null || !Arrays.equals(cached.regularFrequency, regularFrequency)
+                || !Arrays.equals(cached.powerballFrequency, powerballFrequency)) {
+            cached = new FrequencyWeights(regularFrequency.clone(), powerballFrequency.clone());
+        }
+        return cached;
+    }
+
+    public static FrequencyWeights of(DrawAnalyses.NumberFrequency frequency) {
+        return of(frequency.regular, frequency.powerball);
+    }
+
+    // Weights from the current game draws of a CSV or .pbd history
+    public static FrequencyWeights fromHistory(String historyFile) throws IOException {
+        DrawAnalysisEngine engine = new DrawAnalysisEngine();
+        DrawAnalyses.NumberFrequency frequency = engine.register(new DrawAnalyses.NumberFrequency());
+        engine.runParallel(Lotto_Historical_draft2.readPowerballDraws(historyFile));
+        return of(frequency);
+    }
+
+    // Weight of a main number (frequency + 1)
+    public long weight(int number) {
+        return regularFrequency[number - 1] + 1L;
+    }
+
+    // 7 distinct main numbers as a mask, scratch (TREE_SIZE longs) is overwritten for skewed weights
+    public long nextMainMask(RandomGenerator random, long[] scratch) {
+        if (skewed) {
+            return nextMainMaskFromTree(random, scratch);
+        }
+        long mask = 0L;
+        int picked = 0;
+        while (picked < PackedDraw.REGULAR_NUMBERS) {
+            long bit = 1L << aliasPick(random.nextLong(), mainThreshold, mainAlias);
+            if ((mask & bit) == 0) {
+                mask |= bit;
+                picked++;
+            }
+        }
+        return mask;
+    }
+
+    public int nextPowerball(RandomGenerator random) {
+        return aliasPick(random.nextLong(), powerballThreshold, powerballAlias) + 1;
+    }
+
+    // Draw from the tree, taking each number out for the rest of the draw
+    private long nextMainMaskFromTree(RandomGenerator random, long[] scratch) {
+        System.arraycopy(tree, 0, scratch, 0, TREE_SIZE);
+        long remaining = prefix(scratch, PackedDraw.MAX_NUMBER);
+        long mask = 0L;
+        for (int i = 0; i < PackedDraw.REGULAR_NUMBERS; i++) {
+            int number = find(scratch, random.nextLong(remaining));
+            long weight = weight(number);
+            for (int j = number; j < TREE_SIZE; j += j & -j) {
+                scratch[j] -= weight;
+            }
+            remaining -= weight;
+            mask |= 1L << (number - 1);
+        }
+        return mask;
+    }
+
+    // Sum of the weights of numbers 1..n
+    private static long prefix(long[] tree, int n) {
+        long sum = 0;
+        for (int i = n; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Number whose weight range holds target (0 <= target < total), by walking down the tree
+    private static int find(long[] tree, long target) {
+        int position = 0;
+        for (int step = TREE_SIZE / 2; step > 0; step >>= 1) {
+            int next = position + step;
+            if (tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return position + 1;
+    }
+
+    // Vose's alias method: column i keeps itself when the coin is below threshold[i],
+    // otherwise it gives alias[i]
+    private static void buildAlias(long[] weights, int[] threshold, int[] alias) {
+        int n = weights.length;
+        double total = 0;
+        for (long weight : weights) {
+            total += weight;
+        }
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            alias[i] = i;
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            threshold[less] = (int) Math.round(scaled[less] * COIN);
+            alias[less] = more;
+            scaled[more] -= 1 - scaled[less];  // The big column gives up what fills the small one
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is (up to rounding) exactly full
+        while (largeCount > 0) {
+            threshold[large[--largeCount]] = COIN;
+        }
+        while (smallCount > 0) {
+            threshold[small[--smallCount]] = COIN;
+        }
+    }
+
+    // Column and coin from one 64 bit random: column from the high 32 bits by multiply-shift
+    // (bias below 1e-8), coin from the low 30 bits. Returns the 0-based pick
+    private static int aliasPick(long random, int[] threshold, int[] alias) {
+        int column = (int) (((random >>> 32) * threshold.length) >>> 32);
+        return ((int) random & (COIN - 1)) < threshold[column] ? column : alias[column];
+    }
+}
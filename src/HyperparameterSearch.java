@@ -0,0 +1,320 @@
+/*Grid or random search over SequenceModel hyperparameters, several trials at a time
+ * The space is the settings Tensorflow3 / Tensorflow4 hard-code: timeSteps, LSTM units (0 = the
+ * dense stack), dropout, optimizer and early stopping patience, each given as a list of values.
+ * --search grid tries every combination, --search random --trials N draws N different ones.
+ * - Trials run --threads at a time (default one per core), each on its own thread with its own
+ *   model, MatrixMath, seed and batch prefetcher; they only share the normalised history, read only
+ * - Every trial stops early on its validation loss, and starts no new epoch after --budget seconds
+ * - Every trial is scored on the same validation draws: all windows end at draw max(timeSteps) or
+ *   later, whatever their own timeSteps
+ * - Trials are printed as they finish with their place on the leaderboard so far (--csv also
+ *   appends them to a file), the final leaderboard is printed at the end (--top)
+ *
+ * run using java -cp ../bin HyperparameterSearch [--history powerball_results_subset.csv] [--model lstm|dense]
+ *           [--search grid|random] [--trials 50] [--time-steps 5,10,20] [--lstm-units 32,64,128]
+ *           [--dropout 0.2,0.3,0.4] [--optimizer adam,rmsprop] [--patience 5,10] [--epochs 50]
+ *           [--budget 60] [--threads N] [--seed 42] [--top 10] [--csv search.csv]
+ */
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public final class HyperparameterSearch {
+    // One configuration and how it did
+    public static final class Trial {
+        public final int number;
+        public final SequenceModel.Config config;
+        public SequenceTrainer.Fit fit;
+        public String error;  // Set instead of fit when the trial failed
+
+        Trial(int number, SequenceModel.Config config) {
+            this.number = number;
+            this.config = config;
+        }
+
+        public double score() {
+            return fit != null ? fit.bestValidationLoss : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static final Comparator<Trial> BEST_FIRST =
+            Comparator.comparingDouble(Trial::score).thenComparingInt(t -> t.number);
+
+    private final SequenceModel.Config base;
+    private final int[] timeSteps;
+    private final int[] lstmUnits;
+    private final float[] dropouts;
+    private final String[] optimizers;
+    private final int[] patiences;
+
+    public HyperparameterSearch(SequenceModel.Config base, int[] timeSteps, int[] lstmUnits, float[] dropouts,
+                                String[] optimizers, int[] patiences) {
+        // Repeated values (--patience 5,5) would only repeat trials, and leave random() short of combinations
+        this.base = base.copy();
+        this.timeSteps = Arrays.stream(timeSteps).distinct().toArray();
+        this.lstmUnits = Arrays.stream(lstmUnits).distinct().toArray();
+        this.dropouts = distinct(dropouts);
+        this.optimizers = Arrays.stream(optimizers).distinct().toArray(String[]::new);
+        this.patiences = Arrays.stream(patiences).distinct().toArray();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String historyFile = "powerball_results_subset.csv";
+        String architecture = "lstm";
+        String search = "grid";
+        int trials = 50;
+        int[] timeSteps = null;
+        int[] lstmUnits = null;
+        float[] dropouts = {0.2f, 0.3f, 0.4f};
+        String[] optimizers = {"adam", "rmsprop"};
+        int[] patiences = {5, 10};
+        int epochs = -1;
+        int budget = 60;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 42;
+        int top = 10;
+        String csvFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--history": historyFile = args[++i]; break;
+                case "--model": architecture = args[++i]; break;
+                case "--search": search = args[++i]; break;
+                case "--trials": trials = Integer.parseInt(args[++i]); break;
+                case "--time-steps": timeSteps = parseInts(args[++i]); break;
+                case "--lstm-units": lstmUnits = parseInts(args[++i]); break;
+                case "--dropout": dropouts = parseFloats(args[++i]); break;
+                case "--optimizer": optimizers = args[++i].split(","); break;
+                case "--patience": patiences = parseInts(args[++i]); break;
+                case "--epochs": epochs = Integer.parseInt(args[++i]); break;
+                case "--budget": budget = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--top": top = Integer.parseInt(args[++i]); break;
+                case "--csv": csvFile = args[++i]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        SequenceModel.Config base = SequenceModel.Config.of(architecture);
+        base.seed = seed;
+        if (epochs > 0) {
+            base.epochs = epochs;
+        }
+        boolean dense = base.lstmUnits == 0;
+        HyperparameterSearch searcher = new HyperparameterSearch(base,
+                timeSteps != null ? timeSteps : dense ? new int[] {1, 5, 10} : new int[] {5, 10, 20},
+                lstmUnits != null ? lstmUnits : dense ? new int[] {0} : new int[] {32, 64, 128},
+                dropouts, optimizers, patiences);
+        List<SequenceModel.Config> configs;
+        switch (search) {
+            case "grid": configs = searcher.grid(); break;
+            case "random": configs = searcher.random(trials, seed); break;
+            default:
+                System.err.println("Unknown search: " + search + " (grid or random)");
+                return;
+        }
+
+        long[] draws = DrawHistoryFile.loadDraws(historyFile);
+        System.out.println(configs.size() + " trials over " + draws.length + " draws, " + threads + " at a time, "
+                + budget + " s each at most");
+        PrintWriter csv = null;
+        if (csvFile != null) {
+            boolean header = !Files.exists(Paths.get(csvFile));
+            csv = new PrintWriter(new FileWriter(csvFile, true));
+            if (header) {
+                csv.println("trial,time_steps,lstm_units,dropout,optimizer,patience,epochs,train_loss,best_val_loss,millis,out_of_time");
+            }
+        }
+        PrintWriter csvOut = csv;
+        List<Trial> finished = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        try {
+            searcher.run(configs, draws, threads, budget * 1000L, trial -> {
+                finished.add(trial);
+                finished.sort(BEST_FIRST);
+                System.out.println("[" + finished.size() + "/" + configs.size() + "] " + describe(trial)
+                        + "  rank " + (finished.indexOf(trial) + 1) + (finished.get(0) == trial ? "  new best" : ""));
+                if (csvOut != null && trial.fit != null) {
+                    csvOut.println(toCsv(trial));
+                    csvOut.flush();
+                }
+            });
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+        }
+
+        System.out.println("Leaderboard after " + (System.currentTimeMillis() - start) / 1000 + " s:");
+        for (int i = 0; i < Math.min(top, finished.size()); i++) {
+            System.out.println(String.format("%3d. ", i + 1) + describe(finished.get(i)));
+        }
+    }
+
+    // Every combination, in a fixed order
+    public List<SequenceModel.Config> grid() {
+        List<SequenceModel.Config> configs = new ArrayList<>();
+        for (int steps : timeSteps) {
+            for (int units : lstmUnits) {
+                for (float dropout : dropouts) {
+                    for (String optimizer : optimizers) {
+                        for (int patience : patiences) {
+                            configs.add(config(steps, units, dropout, optimizer, patience));
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    // trials different combinations picked at random (all of them if the grid is smaller)
+    public List<SequenceModel.Config> random(int trials, long seed) {
+        int size = timeSteps.length * lstmUnits.length * dropouts.length * optimizers.length * patiences.length;
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<Integer> seen = new HashSet<>();  // Picked combinations, by their position in grid()
+        List<SequenceModel.Config> configs = new ArrayList<>();
+        while (configs.size() < Math.min(trials, size)) {
+            int steps = random.nextInt(timeSteps.length);
+            int units = random.nextInt(lstmUnits.length);
+            int dropout = random.nextInt(dropouts.length);
+            int optimizer = random.nextInt(optimizers.length);
+            int patience = random.nextInt(patiences.length);
+            int position = (((steps * lstmUnits.length + units) * dropouts.length + dropout) * optimizers.length + optimizer)
+                    * patiences.length + patience;
+            if (seen.add(position)) {
+                configs.add(config(timeSteps[steps], lstmUnits[units], dropouts[dropout], optimizers[optimizer], patiences[patience]));
+            }
+        }
+        return configs;
+    }
+
+    private SequenceModel.Config config(int steps, int units, float dropout, String optimizer, int patience) {
+        SequenceModel.Config config = base.copy();
+        config.timeSteps = steps;
+        config.lstmUnits = units;
+        config.dropout = dropout;
+        config.optimizer = optimizer;
+        config.patience = patience;
+        Optimizer.of(optimizer);  // Fail on a misspelt name before any trial starts
+        return config;
+    }
+
+    // Train every config on draws (oldest first), threads at a time, each for at most budgetMillis.
+    // finished sees every trial as it ends, on the calling thread. Returns them best first
+    public List<Trial> run(List<SequenceModel.Config> configs, long[] draws, int threads, long budgetMillis,
+                           Consumer<Trial> finished) throws InterruptedException {
+        int firstTarget = 0;
+        for (SequenceModel.Config config : configs) {
+            firstTarget = Math.max(firstTarget, config.timeSteps);
+        }
+        if (draws.length <= firstTarget) {
+            throw new IllegalArgumentException("Need more than " + firstTarget + " draws, got " + draws.length);
+        }
+        // The padding number and normalisation don't depend on the hyperparameters, so one copy serves all
+        float[] features = SequenceTrainer.normalise(draws);
+        int target = firstTarget;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<Trial> completion = new ExecutorCompletionService<>(executor);
+        List<Trial> trials = new ArrayList<>();
+        try {
+            for (int i = 0; i < configs.size(); i++) {
+                Trial trial = new Trial(i + 1, configs.get(i));
+                trials.add(trial);
+                completion.submit(() -> runTrial(trial, features, draws.length, target, budgetMillis));
+            }
+            for (int i = 0; i < trials.size(); i++) {
+                try {
+                    finished.accept(completion.take().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Trial failed", e.getCause());  // runTrial catches its own
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        trials.sort(BEST_FIRST);
+        return trials;
+    }
+
+    private static Trial runTrial(Trial trial, float[] features, int drawCount, int firstTarget, long budgetMillis) {
+        long deadline = System.currentTimeMillis() + budgetMillis;
+        MatrixMath math = new MatrixMath(1);  // Trials are the parallelism, not the products
+        try {
+            SequenceModel model = new SequenceModel(trial.config, math);
+            WindowDataset windows = new WindowDataset(features, drawCount, trial.config.timeSteps, firstTarget);
+            SplittableRandom random = new SplittableRandom(trial.config.seed ^ 0x5DEECE66DL ^ firstTarget);
+            trial.fit = SequenceTrainer.fit(model, windows, trial.config.epochs, random, deadline, null);
+        } catch (RuntimeException e) {
+            trial.error = e.toString();
+        } finally {
+            math.shutdown();
+        }
+        return trial;
+    }
+
+    private static String describe(Trial trial) {
+        SequenceModel.Config c = trial.config;
+        String setting = String.format(Locale.ROOT, "#%-3d steps=%-3d lstm=%-3d dropout=%.2f %-7s patience=%-2d",
+                trial.number, c.timeSteps, c.lstmUnits, c.dropout, c.optimizer, c.patience);
+        if (trial.fit == null) {
+            return setting + "  failed: " + trial.error;
+        }
+        SequenceTrainer.Fit fit = trial.fit;
+        return setting + String.format(Locale.ROOT, "  val_loss=%.5f loss=%.5f epochs=%-3d %6d ms%s",
+                fit.bestValidationLoss, fit.trainLoss, fit.epochs, fit.millis, fit.outOfTime ? " (out of time)" : "");
+    }
+
+    private static String toCsv(Trial trial) {
+        SequenceModel.Config c = trial.config;
+        SequenceTrainer.Fit fit = trial.fit;
+        return String.format(Locale.ROOT, "%d,%d,%d,%.3f,%s,%d,%d,%.6f,%.6f,%d,%b", trial.number, c.timeSteps, c.lstmUnits,
+                c.dropout, c.optimizer, c.patience, fit.epochs, fit.trainLoss, fit.bestValidationLoss, fit.millis, fit.outOfTime);
+    }
+
+    private static float[] distinct(float[] values) {
+        float[] kept = new float[values.length];
+        int count = 0;
+        for (float value : values) {
+            boolean repeat = false;
+            for (int i = 0; i < count; i++) {
+                repeat |= Float.compare(kept[i], value) == 0;
+            }
+            if (!repeat) {
+                kept[count++] = value;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    private static int[] parseInts(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static float[] parseFloats(String list) {
+        String[] values = list.split(",");
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = Float.parseFloat(values[i]);
+        }
+        return floats;
+    }
+}
@@ -0,0 +1,188 @@
+/*Open addressing long -> long hash map for counting packed draws / combinations
+ * Keys and values live in two primitive arrays (linear probing, power of two capacity),
+ * so counting never boxes a Long and never builds a String key.
+ * Key 0 is stored separately as it marks an empty slot.
+ */
+import java.util.Arrays;
+
+public final class LongLongHashMap {
+    // Called with each key and its value
+    public interface Entry {
+        void accept(long key, long value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    // Add delta to the value for key (missing keys start at 0), returns the new value
+    public long add(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return delta;
+    }
+
+    public long increment(long key) {
+        return add(key, 1);
+    }
+
+    public void put(long key, long value) {
+        add(key, value - get(key));
+    }
+
+    // Value for key, 0 when it isn't in the map
+    public long get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Entry action) {
+        if (hasZeroKey) {
+            action.accept(0L, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Add every entry of another map into this one
+    public void addAll(LongLongHashMap other) {
+        other.forEach(this::add);
+    }
+
+    // Keys ordered by value, highest first, at most limit of them (values are counts, so >= 0).
+    // Ties go to the lower key, so the order never depends on the table's slot layout
+    public long[] keysByValueDescending(int limit) {
+        long[] keys = new long[size];
+        int[] count = {0};
+        forEach((key, value) -> keys[count[0]++] = key);
+        Arrays.sort(keys);
+
+        long[] values = new long[size];
+        long largest = 0;
+        for (int i = 0; i < size; i++) {
+            values[i] = get(keys[i]);
+            largest = Math.max(largest, values[i]);
+        }
+
+        long[] order = new long[size];
+        if (largest <= Integer.MAX_VALUE) {
+            // Sort (value, reversed key position) pairs packed into longs: value in the high half
+            for (int i = 0; i < size; i++) {
+                order[i] = (values[i] << 32) | (size - 1 - i);
+            }
+            Arrays.sort(order);
+        } else {
+            // Counts past 2^31 don't fit the packed pairs, sort the same pairs boxed
+            Integer[] positions = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = i;
+            }
+            Arrays.sort(positions, (a, b) -> values[size - 1 - a] != values[size - 1 - b]
+                    ? Long.compare(values[size - 1 - a], values[size - 1 - b]) : Integer.compare(a, b));
+            for (int i = 0; i < size; i++) {
+                order[i] = positions[i];
+            }
+        }
+
+        long[] sorted = new long[Math.min(limit, size)];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = keys[size - 1 - (int) order[size - 1 - i]];
+        }
+        return sorted;
+    }
+
+    private int slot(long key) {
+        // fmix64 finaliser spreads the bitmask keys across the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
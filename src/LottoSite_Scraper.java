@@ -1,87 +1,232 @@
-/*Scrape Aus historical Lottery data*/
+/*Scrape Aus historical Lottery data
+ * - Years are fetched in parallel (--threads at a time) and spaced out by a shared
+ *   RateLimiter (--rate requests per second) instead of sleeping 5s between years
+ * - Every scraped year is kept in a ScrapeCheckpoint directory with its ETag / Last-Modified,
+ *   a rerun sends conditional requests and reuses the cached rows on 304 Not Modified.
+ *   A past year fetched after it ended doesn't change, so it isn't requested again (--refresh re-checks
+ *   it), one cached while it was running (or that came back empty) is asked for again conditionally
+ * - Pages are streamed through ArchivePageParser, each <tr> becomes a typed draw row as soon as
+ *   it closes and the page is never held as a whole DOM (--dom builds the full Document instead)
+ * - The CSV is put back together from the cached years, newest year first, same layout as before
+ * - --history appends the draws newer than the last stored one to a .pbd history through a
+ *   DrawIngestor, --stats also folds them into a StatisticsStore snapshot
+ * - --base-url points the scraper at another site, e.g. a ScraperFixtureServer for testing
+ *
+ * run using java -cp ../bin:../bin/jsoup-1.18.1.jar LottoSite_Scraper [--from <this year>] [--to 1996]
+ *           [--threads 4] [--rate 1] [--checkpoint scrape-cache] [--out powerball_results.csv]
+ *           [--base-url https://australia.national-lottery.com/powerball/results-archive-] [--refresh] [--dom]
+ *           [--history powerball_results.pbd [--stats stats.snapshot]]
+ */
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
+import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.util.concurrent.TimeUnit;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class LottoSite_Scraper {
-    public static void main(String[] args) {
-        String baseUrl = "https://australia.national-lottery.com/powerball/results-archive-"; // Base URL for each year
-        int startYear = 2024;
+    public static final String DEFAULT_BASE_URL = "https://australia.national-lottery.com/powerball/results-archive-"; // Base URL for each year
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; LottoSite_Scraper)";
+
+    private final String baseUrl;
+    private final ScrapeCheckpoint checkpoint;
+    private final RateLimiter rateLimiter;
+    private final int threads;
+    private final boolean refresh;
+    private final boolean domExtraction;
+    private final HttpClient client;
+
+    public LottoSite_Scraper(String baseUrl, ScrapeCheckpoint checkpoint, RateLimiter rateLimiter, int threads, boolean refresh,
+                             boolean domExtraction) {
+        this.baseUrl = baseUrl;
+        this.checkpoint = checkpoint;
+        this.rateLimiter = rateLimiter;
+        this.threads = threads;
+        this.refresh = refresh;
+        this.domExtraction = domExtraction;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = DEFAULT_BASE_URL;
+        int startYear = Year.now().getValue();
         int endYear = 1996;
+        int threads = 4;
+        double rate = 1.0;
+        String checkpointDir = "scrape-cache";
         String csvFile = "powerball_results.csv"; // Output CSV file
+        boolean refresh = false;
+        boolean domExtraction = false;
+        String historyFile = null;
+        String snapshotFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--from": startYear = Integer.parseInt(args[++i]); break;
+                case "--to": endYear = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--rate": rate = Double.parseDouble(args[++i]); break;
+                case "--checkpoint": checkpointDir = args[++i]; break;
+                case "--out": csvFile = args[++i]; break;
+                case "--base-url": baseUrl = args[++i]; break;
+                case "--refresh": refresh = true; break;
+                case "--dom": domExtraction = true; break;
+                case "--history": historyFile = args[++i]; break;
+                case "--stats": snapshotFile = args[++i]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(csvFile))) {
-            // Write CSV header
-            writer.println("Numbers,Label");
+        LottoSite_Scraper scraper = new LottoSite_Scraper(baseUrl, new ScrapeCheckpoint(Paths.get(checkpointDir)),
+                new RateLimiter(rate), threads, refresh, domExtraction);
+        long start = System.nanoTime();
+        int failed = scraper.scrape(startYear, endYear);
+        int rows = scraper.writeCsv(startYear, endYear, csvFile);
+        System.out.printf("Scraping completed in %.1fs. %d rows saved to %s%n",
+                (System.nanoTime() - start) / 1e9, rows, csvFile);
+        if (failed > 0) {
+            System.err.println(failed + " years failed, rerun to retry them");
+        }
+        if (historyFile != null) {
+            ingest(csvFile, historyFile, snapshotFile);
+        }
+    }
 
+    // Append the draws newer than the history's last one (and update the statistics snapshot)
+    static void ingest(String csvFile, String historyFile, String snapshotFile) throws IOException {
+        DrawIngestor ingestor = new DrawIngestor(historyFile);
+        StatisticsStore store = snapshotFile != null ? ingestor.attachStatistics(Paths.get(snapshotFile)) : null;
+        ingestor.offerCsv(csvFile);
+        DrawIngestor.Change change = ingestor.commit();
+        if (store != null) {
+            store.save(Paths.get(snapshotFile));
+        }
+        System.out.println("Appended " + change.size() + " new draws to " + historyFile);
+        if (ingestor.unlabelled() > 0) {
+            System.err.println("Skipped " + ingestor.unlabelled() + " rows without a draw number");
+        }
+    }
+
+    // Bring every year from startYear down to endYear up to date in the checkpoint,
+    // returns the number of years that failed
+    public int scrape(int startYear, int endYear) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            List<Integer> years = new ArrayList<>();
             for (int year = startYear; year >= endYear; year--) {
-                String url = baseUrl + year;
-                System.out.println("Scraping year: " + year);
+                // A year fetched in full after it ended is final, no need to ask again
+                if (!refresh && checkpoint.isFinal(year)) {
+                    System.out.println("Year " + year + ": cached");
+                    continue;
+                }
+                int y = year;
+                years.add(year);
+                pending.add(executor.submit(() -> {
+                    scrapeYear(y);
+                    return null;
+                }));
+            }
 
+            int failed = 0;
+            for (int i = 0; i < pending.size(); i++) {
                 try {
-                    // Connect to the URL and parse the document
-                    Document doc = Jsoup.connect(url).get();
-
-                    // Select all <tr> elements, as each record is separated by <tr></tr>
-                    Elements tableRows = doc.select("tr");
-
-                    // Loop through each <tr> element to extract the list values and labels
-                    for (Element row : tableRows) {
-                        // Extract <li class="">x</li> elements within the row
-                        Elements listItems = row.select("li");
-
-                        // Extract <a href="" title="y"> elements within the row
-                        Elements links = row.select("a[title]");
-
-                        // Prepare to accumulate all list values in a single row
-                        StringBuilder listValues = new StringBuilder();
-
-                        // Loop through each list item and append the values
-                        for (Element listItem : listItems) {
-                            if (listValues.length() > 0) {
-                                listValues.append(","); // Append comma for separation
-                            }
-                            listValues.append(listItem.text()); // Append the number
-                        }
+                    pending.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.err.println("Error scraping year " + years.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+            return failed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                        // Extract the label (e.g., draw number)
-                        String label = "";
-                        if (!links.isEmpty()) {
-                            label = links.first().attr("title"); // Get the first <a> element's title
-                        }
+    // Fetch one year (conditionally when it's been scraped before) and store its rows
+    void scrapeYear(int year) throws IOException, InterruptedException {
+        String url = baseUrl + year;
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(60))
+                .header("User-Agent", USER_AGENT);
+        boolean cached = checkpoint.hasYear(year);
+        if (cached) {
+            if (checkpoint.etag(year) != null) {
+                request.header("If-None-Match", checkpoint.etag(year));
+            }
+            if (checkpoint.lastModified(year) != null) {
+                request.header("If-Modified-Since", checkpoint.lastModified(year));
+            }
+        }
 
-                        // Write the accumulated list values and label to the CSV
-                        if (listValues.length() > 0) {
-                            writer.println(listValues.toString() + "," + label);
-                        }
-                    }
+        rateLimiter.acquire();
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 304 && cached) {
+            response.body().close();
+            checkpoint.confirmYear(year);
+            System.out.println("Year " + year + ": not modified");
+            return;
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("HTTP " + response.statusCode() + " for " + url);
+        }
 
-                    // Flush the writer to ensure data is saved incrementally
-                    writer.flush();
+        // Rows are typed draws straight from the parser, the cache keeps them as CSV lines
+        StringBuilder rows = new StringBuilder();
+        Consumer<ArchivePageParser.Row> toCsv = row -> row.appendCsv(rows).append('\n');
+        int rowCount;
+        try (InputStream body = response.body()) {
+            rowCount = domExtraction
+                    ? ArchivePageParser.extract(Jsoup.parse(body, charsetOf(response), url), toCsv)
+                    : ArchivePageParser.parse(new BufferedReader(new InputStreamReader(body, charsetOf(response))), url, toCsv);
+        }
+        checkpoint.saveYear(year, rows.toString(), rowCount,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+        System.out.println("Year " + year + ": " + rowCount + " rows");
+    }
 
-                } catch (IOException e) {
-                    System.err.println("Error scraping year " + year + ": " + e.getMessage());
-                }
+    // Charset from the Content-Type header, UTF-8 when there isn't one
+    private static String charsetOf(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        int at = contentType.toLowerCase().indexOf("charset=");
+        return at < 0 ? "UTF-8" : contentType.substring(at + 8).replace("\"", "").trim();
+    }
 
-                // Wait for 5 seconds before scraping the next year
-                try {
-                    TimeUnit.SECONDS.sleep(5);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    System.err.println("Sleep interrupted: " + e.getMessage());
-                }
+    // Reassemble the CSV from the checkpoint, newest year first, returns the number of rows
+    public int writeCsv(int startYear, int endYear, String csvFile) throws IOException {
+        int rows = 0;
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csvFile))) {
+            // Write CSV header
+            writer.println("Numbers,Label");
+            for (int year = startYear; year >= endYear; year--) {
+                String yearRows = checkpoint.rows(year);
+                writer.print(yearRows);
+                rows += yearRows.chars().filter(c -> c == '\n').count();
             }
-
-            System.out.println("Scraping completed. Results saved to " + csvFile);
-
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        return rows;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+/*Float matrix kernels for the sequence model (row major float[] with offsets, no matrix objects)
+ * - multiply:           C (+)= A x B      A m x k, B k x n, C m x n
+ * - multiplyTransposeA: C += A^T x B      A m x k, B m x n, C k x n   (weight gradients)
+ * - multiplyTransposeB: C = A x B^T       A m x n, B k x n, C m x k   (input gradients)
+ * The Gathered variants take A's rows from anywhere in an array (a start offset per row), which
+ * is how input windows are read straight out of the draw history (see WindowDataset).
+ * All three are one kernel: the rows of B (or of B^T) are packed into their own arrays, and a row
+ * of C is built up in a scratch row as a sum of "a(r, q) x packed row q". The rows of B are taken
+ * 256 at a time and every row of C gets that tile's terms before the next tile starts, so a tile
+ * stays in cache while the rows of A go past (C's rows go back and forth between tiles, which is
+ * one row copy per 256 axpys). Both arrays in that inner loop are indexed from 0, which is what
+ * lets C2 vectorise it: an axpy between two arrays at different offsets is left scalar, since C2
+ * can't rule out that they're the same array (about 5x slower here).
+ * Big products are split by output rows over a ForkJoinPool, small ones run on the calling
+ * thread (a 32 x 64 x 256 step isn't worth handing to another core).
+ */
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class MatrixMath {
+    // Rows of B per tile
+    private static final int TILE = 256;
+
+    // Per thread scratch: packed rows of B (on the calling thread) and a row of C (on every worker)
+    private static final ThreadLocal<float[][]> PACKED = ThreadLocal.withInitial(() -> new float[1][1]);
+    private static final ThreadLocal<float[]> ROW = ThreadLocal.withInitial(() -> new float[0]);
+
+    // Multiply-adds below which a product (or a piece of one) stays on one thread
+    private static final long PARALLEL_WORK = 1L << 16;
+
+    private final ForkJoinPool pool;  // null = single threaded
+
+    public MatrixMath(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public MatrixMath(int threads) {
+        this(threads > 1 ? new ForkJoinPool(threads) : null);
+    }
+
+    public void multiply(float[] a, int aOff, float[] b, int bOff, float[] c, int cOff,
+                         int m, int k, int n, boolean accumulate) {
+        float[][] rows = pack(b, bOff, k, n, n, 1);
+        forRows(m, (long) k * n, (from, to) -> kernel(a, aOff, k, 1, null, rows, c, cOff, from, to, k, n, accumulate));
+    }
+
+    // C = A x B where row r of A starts at a[rowStarts[r]] (rows gathered straight out of a bigger
+    // array, e.g. windows of the draw history, without copying them together first)
+    public void multiplyGathered(float[] a, int[] rowStarts, float[] b, int bOff, float[] c, int cOff,
+                                 int m, int k, int n) {
+        float[][] rows = pack(b, bOff, k, n, n, 1);
+        forRows(m, (long) k * n, (from, to) -> kernel(a, 0, 0, 1, rowStarts, rows, c, cOff, from, to, k, n, false));
+    }
+
+    public void multiplyTransposeA(float[] a, int aOff, float[] b, int bOff, float[] c, int cOff,
+                                   int m, int k, int n) {
+        // Row p of A^T is column p of A
+        float[][] rows = pack(b, bOff, m, n, n, 1);
+        forRows(k, (long) m * n, (from, to) -> kernel(a, aOff, 1, k, null, rows, c, cOff, from, to, m, n, true));
+    }
+
+    // C += A^T x B with A's rows gathered as in multiplyGathered
+    public void multiplyTransposeAGathered(float[] a, int[] rowStarts, float[] b, int bOff, float[] c, int cOff,
+                                           int m, int k, int n) {
+        float[][] rows = pack(b, bOff, m, n, n, 1);
+        forRows(k, (long) m * n, (from, to) -> kernelGatheredInner(a, rowStarts, rows, c, cOff, from, to, m, n));
+    }
+
+    public void multiplyTransposeB(float[] a, int aOff, float[] b, int bOff, float[] c, int cOff,
+                                   int m, int n, int k) {
+        // Row j of B^T is column j of B
+        float[][] rows = pack(b, bOff, n, k, 1, n);
+        forRows(m, (long) k * n, (from, to) -> kernel(a, aOff, n, 1, null, rows, c, cOff, from, to, n, k, false));
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Copy rows x columns of a matrix into the calling thread's packed rows, element (q, j) at
+    // b[bOff + q * rowStride + j * columnStride]
+    private static float[][] pack(float[] b, int bOff, int rows, int columns, int rowStride, int columnStride) {
+        float[][] packed = PACKED.get();
+        if (packed.length < rows || packed[0].length < columns) {
+            packed = new float[Math.max(rows, packed.length)][Math.max(columns, packed[0].length)];
+            PACKED.set(packed);
+        }
+        for (int q = 0; q < rows; q++) {
+            float[] row = packed[q];
+            int start = bOff + q * rowStride;
+            if (columnStride == 1) {
+                System.arraycopy(b, start, row, 0, columns);
+            } else {
+                for (int j = 0; j < columns; j++) {
+                    row[j] = b[start + j * columnStride];
+                }
+            }
+        }
+        return packed;
+    }
+
+    // C rows [from, to) (+)= A x B, with A(r, q) = a[aOff + r * aRow + q * aInner]
+    // (or a[rowStarts[r] + q] when gathered) and B's rows packed
+    private static void kernel(float[] a, int aOff, int aRow, int aInner, int[] rowStarts, float[][] rows,
+                               float[] c, int cOff, int from, int to, int inner, int columns, boolean accumulate) {
+        float[] sum = scratchRow(columns);
+        // One tile of B's rows at a time for every row of C, the partial sums go back into C between tiles
+        for (int q0 = 0; q0 < inner || q0 == 0; q0 += TILE) {  // Once even when inner is 0, to clear C
+            int q1 = Math.min(q0 + TILE, inner);
+            for (int r = from; r < to; r++) {
+                int cRow = cOff + r * columns;
+                if (accumulate || q0 > 0) {
+                    System.arraycopy(c, cRow, sum, 0, columns);
+                } else {
+                    Arrays.fill(sum, 0, columns, 0f);
+                }
+                int aStart = rowStarts != null ? rowStarts[r] : aOff + r * aRow;
+                for (int q = q0; q < q1; q++) {
+                    float x = a[aStart + q * aInner];
+                    if (x != 0f) {  // Dropout and ReLU leave plenty of zeros
+                        axpy(x, rows[q], sum, columns);
+                    }
+                }
+                System.arraycopy(sum, 0, c, cRow, columns);
+            }
+        }
+    }
+
+    // C rows [from, to) += A^T x B where A(q, r) = a[rowStarts[q] + r]
+    private static void kernelGatheredInner(float[] a, int[] rowStarts, float[][] rows,
+                                            float[] c, int cOff, int from, int to, int inner, int columns) {
+        float[] sum = scratchRow(columns);
+        for (int r = from; r < to; r++) {
+            int cRow = cOff + r * columns;
+            System.arraycopy(c, cRow, sum, 0, columns);
+            for (int q = 0; q < inner; q++) {
+                float x = a[rowStarts[q] + r];
+                if (x != 0f) {
+                    axpy(x, rows[q], sum, columns);
+                }
+            }
+            System.arraycopy(sum, 0, c, cRow, columns);
+        }
+    }
+
+    private static float[] scratchRow(int columns) {
+        float[] sum = ROW.get();
+        if (sum.length < columns) {
+            sum = new float[columns];
+            ROW.set(sum);
+        }
+        return sum;
+    }
+
+    // y += x * v over the first length elements
+    private static void axpy(float x, float[] v, float[] y, int length) {
+        for (int j = 0; j < length; j++) {
+            y[j] += x * v[j];
+        }
+    }
+
+    private void forRows(int rows, long workPerRow, RowRange kernel) {
+        if (pool == null || rows * workPerRow < 2 * PARALLEL_WORK || rows < 2) {
+            kernel.run(0, rows);
+        } else {
+            pool.invoke(new RowTask(kernel, 0, rows, Math.max(2, (int) (PARALLEL_WORK / Math.max(1, workPerRow)))));
+        }
+    }
+
+    private interface RowRange {
+        void run(int from, int to);
+    }
+
+    // Splits a row range in half until a piece is about PARALLEL_WORK multiply-adds
+    @SuppressWarnings("serial")  // Fork/join tasks are never serialized
+    private static final class RowTask extends RecursiveAction {
+        private final RowRange kernel;
+        private final int from;
+        private final int to;
+        private final int minRows;
+
+        RowTask(RowRange kernel, int from, int to, int minRows) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.minRows = minRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= minRows) {
+                kernel.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(kernel, from, mid, minRows), new RowTask(kernel, mid, to, minRows));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*Saved SequenceModel, so a prediction doesn't have to retrain from scratch
+ * Holds everything needed to carry on exactly where training stopped:
+ * - the model config (timeSteps, layer sizes, optimizer, ...) and the normalisation constants
+ *   it was trained with (MAX_NUMBER, MAX_POWERBALL and the mode used to pad short rows)
+ * - every weight, the batch norm running averages and the optimizer's moment estimates
+ * - how many draws (oldest first) it has been trained on, and the last timeSteps + 1 of them,
+ *   both to find where new draws start in a history file and to predict without one
+ * Written to a temp file first and moved over the old one, like StatisticsStore.
+ */
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public final class ModelCheckpoint {
+    private static final int MAGIC = 0x50424d43;  // "PBMC"
+    private static final int VERSION = 1;
+
+    public final SequenceModel model;
+    public final int modeNumber;       // Padding for rows with fewer than 7 numbers
+    public int drawsTrained;           // Draws of the history the model has seen
+    public long[] recentDraws;         // The last timeSteps + 1 of them, oldest first
+    public int epochs;                 // Epochs trained over all runs
+
+    public ModelCheckpoint(SequenceModel model, int modeNumber) {
+        this.model = model;
+        this.modeNumber = modeNumber;
+        this.recentDraws = new long[0];
+    }
+
+    // Record that the model has now been trained on draws[0, drawCount)
+    public void trainedOn(long[] draws, int drawCount, int epochs) {
+        drawsTrained = drawCount;
+        recentDraws = Arrays.copyOfRange(draws, Math.max(0, drawCount - model.config().timeSteps - 1), drawCount);
+        this.epochs += epochs;
+    }
+
+    // Index in draws (oldest first) of the first draw the model hasn't been trained on:
+    // just after the last place the saved recent draws line up, or -1 when they're not in there
+    public int firstNewDraw(long[] draws) {
+        int length = recentDraws.length;
+        for (int end = draws.length; end >= length; end--) {
+            if (Arrays.equals(draws, end - length, end, recentDraws, 0, length)) {
+                return end;
+            }
+        }
+        return -1;
+    }
+
+    // The newest timeSteps saved draws, normalised, as one input window
+    public float[] recentWindow() {
+        int steps = model.config().timeSteps;
+        float[] features = SequenceTrainer.normalise(recentDraws, modeNumber);
+        return Arrays.copyOfRange(features, features.length - steps * SequenceModel.FEATURES, features.length);
+    }
+
+    public void save(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PackedDraw.MAX_NUMBER);
+            out.writeInt(PackedDraw.MAX_POWERBALL);
+            out.writeInt(modeNumber);
+            writeConfig(out, model.config());
+            out.writeInt(drawsTrained);
+            out.writeInt(epochs);
+            out.writeInt(recentDraws.length);
+            for (long draw : recentDraws) {
+                out.writeLong(draw);
+            }
+            writeArrays(out, model.parameters());
+            writeArrays(out, model.runningStatistics());
+            Optimizer optimizer = model.optimizer();
+            out.writeLong(optimizer.steps);
+            if (optimizer.first != null) {
+                writeArrays(out, optimizer.first);
+                writeArrays(out, optimizer.second);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ModelCheckpoint load(Path path, MatrixMath math) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a model checkpoint: " + path);
+            }
+            int maxNumber = in.readInt();
+            int maxPowerball = in.readInt();
+            if (maxNumber != PackedDraw.MAX_NUMBER || maxPowerball != PackedDraw.MAX_POWERBALL) {
+                throw new IOException("Checkpoint is for a " + maxNumber + " / " + maxPowerball + " game: " + path);
+            }
+            int modeNumber = in.readInt();
+            SequenceModel model = new SequenceModel(readConfig(in), math);
+            ModelCheckpoint checkpoint = new ModelCheckpoint(model, modeNumber);
+            checkpoint.drawsTrained = in.readInt();
+            checkpoint.epochs = in.readInt();
+            checkpoint.recentDraws = new long[in.readInt()];
+            for (int i = 0; i < checkpoint.recentDraws.length; i++) {
+                checkpoint.recentDraws[i] = in.readLong();
+            }
+            readArrays(in, model.parameters());
+            readArrays(in, model.runningStatistics());
+            Optimizer optimizer = model.optimizer();
+            optimizer.steps = in.readLong();
+            if (optimizer.steps > 0) {
+                optimizer.first = shapedLike(model.parameters());
+                optimizer.second = shapedLike(model.parameters());
+                readArrays(in, optimizer.first);
+                readArrays(in, optimizer.second);
+            }
+            model.reseed(model.config().seed + optimizer.steps);
+            return checkpoint;
+        }
+    }
+
+    private static void writeConfig(DataOutputStream out, SequenceModel.Config config) throws IOException {
+        out.writeInt(config.timeSteps);
+        out.writeInt(config.lstmUnits);
+        out.writeInt(config.hiddenUnits.length);
+        for (int units : config.hiddenUnits) {
+            out.writeInt(units);
+        }
+        out.writeFloat(config.leakyAlpha);
+        out.writeFloat(config.dropout);
+        out.writeBoolean(config.sigmoidPowerball);
+        out.writeUTF(config.optimizer);
+        out.writeFloat(config.learningRate);
+        out.writeInt(config.batchSize);
+        out.writeInt(config.epochs);
+        out.writeInt(config.patience);
+        out.writeFloat(config.validationSplit);
+        out.writeBoolean(config.augment);
+        out.writeLong(config.seed);
+    }
+
+    private static SequenceModel.Config readConfig(DataInputStream in) throws IOException {
+        SequenceModel.Config config = new SequenceModel.Config();
+        config.timeSteps = in.readInt();
+        config.lstmUnits = in.readInt();
+        config.hiddenUnits = new int[in.readInt()];
+        for (int i = 0; i < config.hiddenUnits.length; i++) {
+            config.hiddenUnits[i] = in.readInt();
+        }
+        config.leakyAlpha = in.readFloat();
+        config.dropout = in.readFloat();
+        config.sigmoidPowerball = in.readBoolean();
+        config.optimizer = in.readUTF();
+        config.learningRate = in.readFloat();
+        config.batchSize = in.readInt();
+        config.epochs = in.readInt();
+        config.patience = in.readInt();
+        config.validationSplit = in.readFloat();
+        config.augment = in.readBoolean();
+        config.seed = in.readLong();
+        return config;
+    }
+
+    private static void writeArrays(DataOutputStream out, float[][] arrays) throws IOException {
+        out.writeInt(arrays.length);
+        for (float[] array : arrays) {
+            out.writeInt(array.length);
+            // Whole arrays at a time, same big endian bytes as writeFloat
+            ByteBuffer bytes = ByteBuffer.allocate(array.length * Float.BYTES);
+            bytes.asFloatBuffer().put(array);
+            out.write(bytes.array());
+        }
+    }
+
+    // Read into arrays that already have the right shapes (the config rebuilt the same layers)
+    private static void readArrays(DataInputStream in, float[][] arrays) throws IOException {
+        if (in.readInt() != arrays.length) {
+            throw new IOException("Checkpoint layout doesn't match its config");
+        }
+        for (float[] array : arrays) {
+            if (in.readInt() != array.length) {
+                throw new IOException("Checkpoint layout doesn't match its config");
+            }
+            byte[] bytes = new byte[array.length * Float.BYTES];
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asFloatBuffer().get(array);
+        }
+    }
+
+    private static float[][] shapedLike(float[][] arrays) {
+        float[][] copy = new float[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) {
+            copy[i] = new float[arrays[i].length];
+        }
+        return copy;
+    }
+}
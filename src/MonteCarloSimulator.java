@@ -0,0 +1,287 @@
+/*Monte Carlo backtesting of ticket strategies against simulated draw histories
+ * A trial is a synthetic history of --draws uniformly random draws. For every draw the strategy
+ * buys --tickets tickets, each is scored with PrizeEvaluator.division and paid from a dividend table.
+ * - Every trial has its own seed mixed from (seed, trial number), so results don't depend on
+ *   the thread count or on which trials ran together
+ * - Trials run in batches on a ForkJoinPool, each batch is folded into running totals in trial
+ *   order and the running report can be printed as it goes (--progress)
+ * - Only totals and fixed size histograms are kept, memory doesn't grow with the number of trials
+ * Strategies are BulkTicketGenerator.TicketStrategy, a fresh one per trial. "weighted" picks by the
+ * frequencies of the real history it was built from, the simulated draws don't change them.
+ *
+ * run using java -cp ../bin MonteCarloSimulator --trials 100000 --draws 10000 --strategy uniform|advanced|quota:4:3|weighted[:history]
+ *           [--tickets 1] [--seed 42] [--threads N] [--price 1.35] [--jackpot 20000000] [--progress]
+ */
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+public final class MonteCarloSimulator {
+    // Rough average dividends in cents for divisions 2-9 (division 1 is the jackpot), override as needed
+    public static final long[] DEFAULT_DIVIDENDS = {
+            0, 20_000_000_00L, 100_000_00L, 6_000_00L, 500_00L, 150_00L, 50_00L, 35_00L, 20_00L, 12_00L
+    };
+    public static final long DEFAULT_TICKET_PRICE = 1_35;  // Cents per game
+
+    // Trials handed to a worker at a time
+    private static final int TRIALS_PER_TASK = 16;
+
+    private final Supplier<BulkTicketGenerator.TicketStrategy> strategy;
+    private final int drawsPerTrial;
+    private final int ticketsPerDraw;
+    private final long[] dividends;
+    private final long ticketPrice;
+
+    public MonteCarloSimulator(Supplier<BulkTicketGenerator.TicketStrategy> strategy, int drawsPerTrial, int ticketsPerDraw,
+                               long[] dividends, long ticketPrice) {
+        if (dividends.length != PrizeEvaluator.DIVISIONS + 1) {
+            throw new IllegalArgumentException("Need a dividend for every division");
+        }
+        this.strategy = strategy;
+        this.drawsPerTrial = drawsPerTrial;
+        this.ticketsPerDraw = ticketsPerDraw;
+        this.dividends = dividends.clone();
+        this.ticketPrice = ticketPrice;
+    }
+
+    public static void main(String[] args) {
+        long trials = 1000;
+        int draws = 1500;
+        int tickets = 1;
+        String strategy = "uniform";
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long price = DEFAULT_TICKET_PRICE;
+        long[] dividends = DEFAULT_DIVIDENDS.clone();
+        boolean progress = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--trials": trials = Long.parseLong(args[++i]); break;
+                case "--draws": draws = Integer.parseInt(args[++i]); break;
+                case "--tickets": tickets = Integer.parseInt(args[++i]); break;
+                case "--strategy": strategy = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--price": price = Math.round(Double.parseDouble(args[++i]) * 100); break;
+                case "--jackpot": dividends[1] = Math.round(Double.parseDouble(args[++i]) * 100); break;
+                case "--progress": progress = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        MonteCarloSimulator simulator = new MonteCarloSimulator(strategyFor(strategy), draws, tickets, dividends, price);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            long finalTrials = trials;
+            Results results = simulator.run(trials, seed, pool, !progress ? null : running ->
+                    System.err.printf("%d / %d trials, ROI %.2f%%%n", running.trials, finalTrials, 100 * running.roi()));
+            System.out.println("Strategy " + strategy + ", seed " + seed + ", "
+                    + String.format("%.1f", (System.nanoTime() - start) / 1e9) + " s");
+            results.report(System.out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // "uniform" (RandomDraw_Simple1), "advanced" (RandomDraw_Advanced2's configurations in turn),
+    // "quota:odd:even" for a fixed odd/even split or "weighted[:history]" for historical frequencies
+    public static Supplier<BulkTicketGenerator.TicketStrategy> strategyFor(String name) {
+        if (name.equals("weighted") || name.startsWith("weighted:")) {
+            BulkTicketGenerator.TicketStrategy weighted = BulkTicketGenerator.strategyFor(name);  // Weights built once
+            return () -> weighted;
+        }
+        switch (name) {
+            case "uniform": return () -> BulkTicketGenerator.SIMPLE;
+            case "advanced": return () -> BulkTicketGenerator.ADVANCED;
+            default:
+                if (name.startsWith("quota:")) {
+                    String[] split = name.split(":");
+                    int odd = Integer.parseInt(split[1]);
+                    int even = Integer.parseInt(split[2]);
+                    DrawGenerator.checkOddEven(odd, even);
+                    return () -> (generator, ticketIndex) -> generator.nextOddEven(odd, even);
+                }
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    // Called with the running totals after each batch of trials
+    public interface Progress {
+        void update(Results running);
+    }
+
+    // Run trials [0, trials), progress may be null
+    public Results run(long trials, long seed, ForkJoinPool pool, Progress progress) {
+        Results total = new Results();
+        long batch = (long) pool.getParallelism() * TRIALS_PER_TASK * 8;
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[(int) Math.ceil((double) batch / TRIALS_PER_TASK)];
+        Results[] parts = new Results[tasks.length];
+        for (long from = 0; from < trials; from += batch) {
+            int count = 0;
+            for (long first = from; first < Math.min(trials, from + batch); first += TRIALS_PER_TASK) {
+                long last = Math.min(trials, Math.min(from + batch, first + TRIALS_PER_TASK));
+                Results part = parts[count] = new Results();
+                long firstTrial = first;
+                tasks[count++] = pool.submit(() -> {
+                    for (long trial = firstTrial; trial < last; trial++) {
+                        runTrial(seed, trial, part);
+                    }
+                });
+            }
+            // Merge in trial order so the totals are the same for any thread count
+            for (int i = 0; i < count; i++) {
+                tasks[i].join();
+                total.merge(parts[i]);
+            }
+            if (progress != null) {
+                progress.update(total);
+            }
+        }
+        return total;
+    }
+
+    // Simulate one trial into results
+    void runTrial(long seed, long trial, Results results) {
+        SplittableRandom random = new SplittableRandom(mix(seed + mix(trial)));
+        DrawGenerator lottery = new DrawGenerator(random.split());   // The simulated draws
+        DrawGenerator player = new DrawGenerator(random.split());    // The strategy's tickets
+        BulkTicketGenerator.TicketStrategy tickets = strategy.get();
+
+        long ticketIndex = 0;
+        long won = 0;
+        for (int d = 0; d < drawsPerTrial; d++) {
+            long draw = lottery.next();
+            for (int t = 0; t < ticketsPerDraw; t++) {
+                int division = PrizeEvaluator.division(tickets.next(player, ticketIndex++), draw);
+                results.divisions[division]++;
+                won += dividends[division];
+            }
+        }
+        results.addTrial(ticketIndex * ticketPrice, won, drawsPerTrial);
+    }
+
+    // fmix64, spreads consecutive trial numbers into unrelated seeds
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    // Streaming aggregates over any number of trials
+    public static final class Results {
+        // Per-trial ROI histogram: 5% bins from -100% up to +400%, the last bin takes everything above
+        static final int ROI_BINS = 101;
+        static final double ROI_BIN_WIDTH = 0.05;
+
+        final long[] divisions = new long[PrizeEvaluator.DIVISIONS + 1];
+        final long[] roiBins = new long[ROI_BINS];
+        long trials;
+        long draws;
+        long spent;  // Cents
+        long won;
+        long winningTrials;
+        double roiSum;
+        double roiSquares;
+        double bestRoi = Double.NEGATIVE_INFINITY;
+        double worstRoi = Double.POSITIVE_INFINITY;
+
+        void addTrial(long trialSpent, long trialWon, int trialDraws) {
+            double roi = trialSpent == 0 ? 0 : (double) (trialWon - trialSpent) / trialSpent;
+            trials++;
+            draws += trialDraws;
+            spent += trialSpent;
+            won += trialWon;
+            winningTrials += trialWon > trialSpent ? 1 : 0;
+            roiSum += roi;
+            roiSquares += roi * roi;
+            bestRoi = Math.max(bestRoi, roi);
+            worstRoi = Math.min(worstRoi, roi);
+            roiBins[Math.min(ROI_BINS - 1, (int) ((roi + 1) / ROI_BIN_WIDTH))]++;
+        }
+
+        void merge(Results other) {
+            for (int i = 0; i < divisions.length; i++) {
+                divisions[i] += other.divisions[i];
+            }
+            for (int i = 0; i < roiBins.length; i++) {
+                roiBins[i] += other.roiBins[i];
+            }
+            trials += other.trials;
+            draws += other.draws;
+            spent += other.spent;
+            won += other.won;
+            winningTrials += other.winningTrials;
+            roiSum += other.roiSum;
+            roiSquares += other.roiSquares;
+            bestRoi = Math.max(bestRoi, other.bestRoi);
+            worstRoi = Math.min(worstRoi, other.worstRoi);
+        }
+
+        public long trials() {
+            return trials;
+        }
+
+        public long division(int division) {
+            return divisions[division];
+        }
+
+        // Overall return on everything spent, -1 = lost it all
+        public double roi() {
+            return spent == 0 ? 0 : (double) (won - spent) / spent;
+        }
+
+        public double meanTrialRoi() {
+            return trials == 0 ? 0 : roiSum / trials;
+        }
+
+        public double trialRoiDeviation() {
+            if (trials < 2) {
+                return 0;
+            }
+            double mean = meanTrialRoi();
+            return Math.sqrt(Math.max(0, (roiSquares - trials * mean * mean) / (trials - 1)));
+        }
+
+        // Approximate per-trial ROI percentile (0-1) from the histogram, lower edge of its bin
+        public double trialRoiPercentile(double percentile) {
+            long target = (long) Math.ceil(percentile * trials);
+            long seen = 0;
+            for (int bin = 0; bin < ROI_BINS; bin++) {
+                seen += roiBins[bin];
+                if (seen >= target && seen > 0) {
+                    return bin * ROI_BIN_WIDTH - 1;
+                }
+            }
+            return (ROI_BINS - 1) * ROI_BIN_WIDTH - 1;
+        }
+
+        public void report(PrintStream out) {
+            long tickets = 0;
+            for (long count : divisions) {
+                tickets += count;
+            }
+            out.println("Trials: " + trials + ", simulated draws: " + draws + ", tickets: " + tickets);
+            out.println("Spent: $" + String.format("%.2f", spent / 100.0) + ", won: $" + String.format("%.2f", won / 100.0)
+                    + ", ROI: " + String.format("%.2f", 100 * roi()) + "%");
+            out.println("Prize divisions: ");
+            for (int division = 1; division <= PrizeEvaluator.DIVISIONS; division++) {
+                out.println("Division " + division + ": " + divisions[division] + " times"
+                        + (divisions[division] > 0 ? " (1 in " + String.format("%.0f", (double) tickets / divisions[division]) + ")" : ""));
+            }
+            out.println("Trial ROI: mean " + String.format("%.2f", 100 * meanTrialRoi()) + "%, std dev "
+                    + String.format("%.2f", 100 * trialRoiDeviation()) + "%, worst " + String.format("%.2f", 100 * worstRoi)
+                    + "%, best " + String.format("%.2f", 100 * bestRoi) + "%");
+            out.println("Trial ROI percentiles: 5% " + String.format("%.0f", 100 * trialRoiPercentile(0.05))
+                    + "%, median " + String.format("%.0f", 100 * trialRoiPercentile(0.5))
+                    + "%, 95% " + String.format("%.0f", 100 * trialRoiPercentile(0.95)) + "%");
+            out.println("Trials that made a profit: " + winningTrials + " ("
+                    + String.format("%.4f", trials == 0 ? 0 : 100.0 * winningTrials / trials) + "%)");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*Gradient descent rules for SequenceModel, same defaults as the tfjs optimizers the Node scripts used
+ * - adam:    learning rate 0.001, beta1 0.9, beta2 0.999, epsilon 1e-7  (Tensorflow3)
+ * - rmsprop: learning rate 0.001, decay 0.9, epsilon 1e-7               (Tensorflow4)
+ * State (moment estimates) is one float[] per parameter array, allocated on the first step.
+ */
+public abstract class Optimizer {
+    static final float EPSILON = 1e-7f;
+
+    final float learningRate;
+    float[][] first;   // Per parameter state: Adam first moment / RMSprop mean square
+    float[][] second;  // Adam second moment, unused by RMSprop
+    long steps;
+
+    Optimizer(float learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public static Optimizer of(String name, float learningRate) {
+        switch (name) {
+            case "adam": return new Adam(learningRate);
+            case "rmsprop": return new RmsProp(learningRate);
+            default: throw new IllegalArgumentException("Unknown optimizer: " + name + " (adam or rmsprop)");
+        }
+    }
+
+    public static Optimizer of(String name) {
+        return of(name, 0.001f);
+    }
+
+    public abstract String name();
+
+    // One step over every parameter array with its gradient
+    public void update(float[][] parameters, float[][] gradients) {
+        if (first == null) {
+            first = new float[parameters.length][];
+            second = new float[parameters.length][];
+            for (int i = 0; i < parameters.length; i++) {
+                first[i] = new float[parameters[i].length];
+                second[i] = new float[parameters[i].length];
+            }
+        }
+        steps++;
+        for (int i = 0; i < parameters.length; i++) {
+            update(parameters[i], gradients[i], first[i], second[i]);
+        }
+    }
+
+    abstract void update(float[] parameter, float[] gradient, float[] first, float[] second);
+
+    static final class Adam extends Optimizer {
+        private static final float BETA1 = 0.9f;
+        private static final float BETA2 = 0.999f;
+
+        Adam(float learningRate) {
+            super(learningRate);
+        }
+
+        @Override
+        public String name() {
+            return "adam";
+        }
+
+        @Override
+        void update(float[] parameter, float[] gradient, float[] m, float[] v) {
+            // Bias correction folded into the step size
+            float step = (float) (learningRate * Math.sqrt(1 - Math.pow(BETA2, steps)) / (1 - Math.pow(BETA1, steps)));
+            for (int i = 0; i < parameter.length; i++) {
+                float g = gradient[i];
+                m[i] = BETA1 * m[i] + (1 - BETA1) * g;
+                v[i] = BETA2 * v[i] + (1 - BETA2) * g * g;
+                parameter[i] -= step * m[i] / ((float) Math.sqrt(v[i]) + EPSILON);
+            }
+        }
+    }
+
+    static final class RmsProp extends Optimizer {
+        private static final float DECAY = 0.9f;
+
+        RmsProp(float learningRate) {
+            super(learningRate);
+        }
+
+        @Override
+        public String name() {
+            return "rmsprop";
+        }
+
+        @Override
+        void update(float[] parameter, float[] gradient, float[] meanSquare, float[] unused) {
+            for (int i = 0; i < parameter.length; i++) {
+                float g = gradient[i];
+                meanSquare[i] = DECAY * meanSquare[i] + (1 - DECAY) * g * g;
+                parameter[i] -= learningRate * g / (float) Math.sqrt(meanSquare[i] + EPSILON);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*Bitmask-encoded Powerball draw shared by the analysers and generators
+ * A whole draw fits in one long, so no int[8] or ArrayList<Integer> per draw:
+ *  - bits 0-44  : main number mask (number n is stored in bit n-1)
+ *  - bits 48-53 : Powerball number
+ * The current game only needs 35 main bits and a 1-20 Powerball, the wider fields
+ * let the older 5 from 45 and 6 from 40 rows in powerball_results.csv fit as well.
+ * Sorted order, odd/even, consecutive runs, range and sum all come straight off the mask.
+ */
+
+public final class PackedDraw {
+    // Rules for the current game (7 numbers from 1-35 + Powerball 1-20)
+    public static final int MAX_NUMBER = 35;
+    public static final int MAX_POWERBALL = 20;
+    public static final int REGULAR_NUMBERS = 7;
+
+    // Largest main number / Powerball the encoding can hold (older game formats)
+    public static final int MAX_ENCODED_NUMBER = 45;
+    public static final int MAX_ENCODED_POWERBALL = 63;
+
+    public static final long MAIN_MASK = (1L << MAX_ENCODED_NUMBER) - 1;
+    public static final int POWERBALL_SHIFT = 48;
+
+    // Number n lives in bit n-1, so odd numbers are the even bit positions
+    public static final long ODD_MASK = 0x5555_5555_5555_5555L & MAIN_MASK;
+    public static final long EVEN_MASK = 0xAAAA_AAAA_AAAA_AAAAL & MAIN_MASK;
+
+    // Value used for "no draw" (a real draw always has main numbers)
+    public static final long EMPTY = 0L;
+
+    private PackedDraw() {
+    }
+
+    // Pack a main number mask and Powerball into one draw
+    public static long of(long mainMask, int powerball) {
+        if (powerball < 1 || powerball > MAX_ENCODED_POWERBALL) {
+            throw new IllegalArgumentException("Powerball out of range: " + powerball);
+        }
+        return (mainMask & MAIN_MASK) | ((long) powerball << POWERBALL_SHIFT);
+    }
+
+    // Pack numbers[offset .. offset+count-1] as the main numbers plus the Powerball
+    public static long pack(int[] numbers, int offset, int count, int powerball) {
+        long mask = 0L;
+        for (int i = offset; i < offset + count; i++) {
+            mask |= bit(numbers[i]);
+        }
+        return of(mask, powerball);
+    }
+
+    // Pack the classic int[8] layout (7 regular numbers + Powerball in the last slot)
+    public static long pack(int[] draw) {
+        return pack(draw, 0, draw.length - 1, draw[draw.length - 1]);
+    }
+
+    // Bit used for a single main number
+    public static long bit(int number) {
+        if (number < 1 || number > MAX_ENCODED_NUMBER) {
+            throw new IllegalArgumentException("Main number out of range: " + number);
+        }
+        return 1L << (number - 1);
+    }
+
+    public static long mainMask(long draw) {
+        return draw & MAIN_MASK;
+    }
+
+    public static int powerball(long draw) {
+        return (int) (draw >>> POWERBALL_SHIFT) & MAX_ENCODED_POWERBALL;
+    }
+
+    public static boolean contains(long draw, int number) {
+        return number >= 1 && number <= MAX_ENCODED_NUMBER && (draw & (1L << (number - 1))) != 0;
+    }
+
+    // How many main numbers are in the draw
+    public static int mainCount(long draw) {
+        return Long.bitCount(draw & MAIN_MASK);
+    }
+
+    // True when the draw follows the current rules (7 from 1-35 + Powerball 1-20)
+    public static boolean isCurrentGame(long draw) {
+        long mask = draw & MAIN_MASK;
+        int powerball = powerball(draw);
+        return Long.bitCount(mask) == REGULAR_NUMBERS
+                && (mask >>> MAX_NUMBER) == 0
+                && powerball >= 1 && powerball <= MAX_POWERBALL;
+    }
+
+    // Odd/even counts of the main numbers (popcount against the parity masks)
+    public static int oddCount(long draw) {
+        return Long.bitCount(draw & ODD_MASK);
+    }
+
+    public static int evenCount(long draw) {
+        return Long.bitCount(draw & EVEN_MASK);
+    }
+
+    // Odd count over all numbers including the Powerball
+    public static int oddCountWithPowerball(long draw) {
+        return oddCount(draw) + (powerball(draw) & 1);
+    }
+
+    // Number of adjacent pairs (n, n+1) among the main numbers
+    public static int consecutivePairs(long draw) {
+        long mask = draw & MAIN_MASK;
+        return Long.bitCount(mask & (mask >>> 1));
+    }
+
+    // Length of the longest run of consecutive main numbers
+    public static int longestRun(long draw) {
+        long mask = draw & MAIN_MASK;
+        int run = 0;
+        while (mask != 0) {
+            mask &= mask >>> 1;
+            run++;
+        }
+        return run;
+    }
+
+    // Smallest / largest main number (0 for an empty mask)
+    public static int min(long draw) {
+        long mask = draw & MAIN_MASK;
+        return mask == 0 ? 0 : Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    public static int max(long draw) {
+        long mask = draw & MAIN_MASK;
+        return mask == 0 ? 0 : 64 - Long.numberOfLeadingZeros(mask);
+    }
+
+    public static int range(long draw) {
+        return max(draw) - min(draw);
+    }
+
+    // Sum of the main numbers
+    public static int sum(long draw) {
+        long mask = draw & MAIN_MASK;
+        int sum = 0;
+        while (mask != 0) {
+            sum += Long.numberOfTrailingZeros(mask) + 1;
+            mask &= mask - 1;
+        }
+        return sum;
+    }
+
+    // Count of main numbers two draws (or a ticket and a draw) share
+    public static int mainMatches(long a, long b) {
+        return Long.bitCount(a & b & MAIN_MASK);
+    }
+
+    // Write the main numbers in ascending order into out, returns how many were written
+    public static int unpackMain(long draw, int[] out, int offset) {
+        long mask = draw & MAIN_MASK;
+        int count = 0;
+        while (mask != 0) {
+            out[offset + count++] = Long.numberOfTrailingZeros(mask) + 1;
+            mask &= mask - 1;
+        }
+        return count;
+    }
+
+    // Expand back into the classic int[] layout (sorted main numbers + Powerball last)
+    public static int[] toArray(long draw) {
+        int[] numbers = new int[mainCount(draw) + 1];
+        int count = unpackMain(draw, numbers, 0);
+        numbers[count] = powerball(draw);
+        return numbers;
+    }
+
+    // Same format ArrayList.toString() used to print, e.g. "[3, 9, 12, 15, 20, 29, 30, 16]"
+    public static String toString(long draw) {
+        StringBuilder sb = new StringBuilder(32).append('[');
+        appendNumbers(sb, draw, ", ");
+        return sb.append(']').toString();
+    }
+
+    // Append "n1<sep>n2<sep>...<sep>powerball" to a builder (used for CSV and report output)
+    public static StringBuilder appendNumbers(StringBuilder sb, long draw, String separator) {
+        long mask = draw & MAIN_MASK;
+        while (mask != 0) {
+            sb.append(Long.numberOfTrailingZeros(mask) + 1).append(separator);
+            mask &= mask - 1;
+        }
+        return sb.append(powerball(draw));
+    }
+
+    // Main numbers only, formatted like Arrays.toString, e.g. "[3, 9, 12, 15, 20, 29, 30]"
+    public static String mainToString(long draw) {
+        StringBuilder sb = new StringBuilder(32).append('[');
+        long mask = draw & MAIN_MASK;
+        while (mask != 0) {
+            sb.append(Long.numberOfTrailingZeros(mask) + 1);
+            mask &= mask - 1;
+            if (mask != 0) {
+                sb.append(", ");
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,254 @@
+/*Prize divisions of tickets against the draw history
+ * Current game divisions (7 from 35 + Powerball 1-20):
+ *   Div 1: 7 + PB   Div 2: 7        Div 3: 6 + PB   Div 4: 6       Div 5: 5 + PB
+ *   Div 6: 4 + PB   Div 7: 5        Div 8: 3 + PB   Div 9: 2 + PB
+ *
+ * Rather than popcounting one (ticket, draw) pair at a time, the history is stored transposed:
+ * for every number a bitset over the draws ("draws containing 17"), 64 draws per long.
+ * Adding up a ticket's 7 bitsets with bit-sliced counters gives the match count of 64 draws
+ * at once in three longs (bits 0, 1, 2 of each count), and the division totals come out of a
+ * few ANDs and popcounts per 64 draws. Tickets are split over a ForkJoinPool.
+ *
+ * run using java -cp ../bin PrizeEvaluator [--count 10000000] [--mode simple|advanced] [--seed 42] [--history powerball_results.csv]
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class PrizeEvaluator {
+    public static final int DIVISIONS = 9;
+    public static final int NO_PRIZE = 0;
+
+    // Tickets per task when a batch is split up
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    // Division for (main matches << 1 | Powerball match), 0 = no prize
+    private static final int[] DIVISION = new int[(PackedDraw.REGULAR_NUMBERS + 1) << 1];
+
+    static {
+        DIVISION[7 << 1 | 1] = 1;
+        DIVISION[7 << 1] = 2;
+        DIVISION[6 << 1 | 1] = 3;
+        DIVISION[6 << 1] = 4;
+        DIVISION[5 << 1 | 1] = 5;
+        DIVISION[4 << 1 | 1] = 6;
+        DIVISION[5 << 1] = 7;
+        DIVISION[3 << 1 | 1] = 8;
+        DIVISION[2 << 1 | 1] = 9;
+    }
+
+    private final int drawCount;
+    private final int words;               // Longs per draw bitset
+    private final long[] numberDraws;      // [number - 1][word]: draws containing the number
+    private final long[] powerballDraws;   // [powerball - 1][word]: draws with that Powerball
+
+    // Index the draws to evaluate against (older game formats are left out)
+    public PrizeEvaluator(long[] draws) {
+        int count = 0;
+        for (long draw : draws) {
+            count += PackedDraw.isCurrentGame(draw) ? 1 : 0;
+        }
+        drawCount = count;
+        words = (count + 63) >>> 6;
+        numberDraws = new long[PackedDraw.MAX_NUMBER * words];
+        powerballDraws = new long[PackedDraw.MAX_POWERBALL * words];
+
+        int index = 0;
+        for (long draw : draws) {
+            if (!PackedDraw.isCurrentGame(draw)) {
+                continue;
+            }
+            int word = index >>> 6;
+            long bit = 1L << index;
+            long mask = PackedDraw.mainMask(draw);
+            while (mask != 0) {
+                numberDraws[Long.numberOfTrailingZeros(mask) * words + word] |= bit;
+                mask &= mask - 1;
+            }
+            powerballDraws[(PackedDraw.powerball(draw) - 1) * words + word] |= bit;
+            index++;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long count = 10_000_000;
+        String mode = "simple";
+        long seed = new SplittableRandom().nextLong();
+        String historyFile = "powerball_results.csv";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count": count = Long.parseLong(args[++i]); break;
+                case "--mode": mode = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--history": historyFile = args[++i]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        PrizeEvaluator evaluator = new PrizeEvaluator(DrawHistoryFile.loadDraws(historyFile));
+        int threads = Runtime.getRuntime().availableProcessors();
+        BulkTicketGenerator generator = new BulkTicketGenerator(threads);
+        long[] histogram = new long[DIVISIONS + 1];
+        long start = System.nanoTime();
+        try {
+            // Generate and evaluate in batches so the ticket array stays small
+            long[] tickets = new long[(int) Math.min(count, 1 << 22)];
+            SplittableRandom seeds = new SplittableRandom(seed);
+            for (long done = 0; done < count; done += tickets.length) {
+                long[] batch = count - done < tickets.length ? new long[(int) (count - done)] : tickets;
+                generator.generate(batch, seeds.nextLong(), BulkTicketGenerator.strategyFor(mode));
+                add(histogram, evaluator.evaluate(batch));
+            }
+        } finally {
+            generator.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(count + " " + mode + " tickets against " + evaluator.drawCount() + " draws in "
+                + String.format("%.2f", seconds) + " s (" + String.format("%.0f", count * evaluator.drawCount() / seconds / 1e6)
+                + " M ticket-draws/s)");
+        report(histogram, System.out);
+    }
+
+    // Division (1-9) a single ticket wins in a single draw, 0 for no prize
+    public static int division(long ticket, long draw) {
+        int mains = PackedDraw.mainMatches(ticket, draw);
+        int powerball = PackedDraw.powerball(ticket) == PackedDraw.powerball(draw) ? 1 : 0;
+        return DIVISION[mains << 1 | powerball];
+    }
+
+    public int drawCount() {
+        return drawCount;
+    }
+
+    // Division histogram of every ticket against every draw, [0] is the no prize count.
+    // Tickets must be 7 from 35 + Powerball 1-20 (IllegalArgumentException otherwise)
+    public long[] evaluate(long[] tickets) {
+        return evaluate(tickets, ForkJoinPool.commonPool());
+    }
+
+    public long[] evaluate(long[] tickets, ForkJoinPool pool) {
+        return pool.invoke(new ChunkTask(tickets, 0, tickets.length));
+    }
+
+    // Histogram for tickets[from, to) on the calling thread
+    public long[] evaluate(long[] tickets, int from, int to) {
+        long[] histogram = new long[DIVISIONS + 1];
+        int[] numbers = new int[PackedDraw.REGULAR_NUMBERS];
+        for (int t = from; t < to; t++) {
+            evaluateTicket(tickets[t], numbers, histogram);
+        }
+        long prizes = 0;
+        for (int division = 1; division <= DIVISIONS; division++) {
+            prizes += histogram[division];
+        }
+        histogram[NO_PRIZE] = (long) (to - from) * drawCount - prizes;
+        return histogram;
+    }
+
+    // Add one ticket's wins over all draws to histogram[1..9]
+    private void evaluateTicket(long ticket, int[] numbers, long[] histogram) {
+        // Anything else would index past numbers[] or into another number's bitset
+        if (!PackedDraw.isCurrentGame(ticket)) {
+            throw new IllegalArgumentException("Ticket isn't 7 numbers + Powerball: " + PackedDraw.toString(ticket));
+        }
+
+        // Start of each of the ticket's number bitsets
+        int picks = 0;
+        long mask = PackedDraw.mainMask(ticket);
+        while (mask != 0) {
+            numbers[picks++] = Long.numberOfTrailingZeros(mask) * words;
+            mask &= mask - 1;
+        }
+        int powerball = (PackedDraw.powerball(ticket) - 1) * words;
+
+        long d1 = 0, d2 = 0, d3 = 0, d4 = 0, d5 = 0, d6 = 0, d7 = 0, d8 = 0, d9 = 0;
+        for (int w = 0; w < words; w++) {
+            // Bit-sliced counters: bit k of each draw's match count lives in sk
+            long s0 = 0, s1 = 0, s2 = 0;
+            for (int i = 0; i < picks; i++) {
+                long x = numberDraws[numbers[i] + w];
+                long carry0 = s0 & x;
+                s0 ^= x;
+                long carry1 = s1 & carry0;
+                s1 ^= carry0;
+                s2 ^= carry1;  // At most 7 matches, so nothing carries out of bit 2
+            }
+            long pb = powerballDraws[powerball + w];
+            long eq7 = s2 & s1 & s0;
+            long eq6 = s2 & s1 & ~s0;
+            long eq5 = s2 & ~s1 & s0;
+            long eq4 = s2 & ~s1 & ~s0;
+            long eq3 = ~s2 & s1 & s0;
+            long eq2 = ~s2 & s1 & ~s0;
+            d1 += Long.bitCount(eq7 & pb);
+            d2 += Long.bitCount(eq7 & ~pb);
+            d3 += Long.bitCount(eq6 & pb);
+            d4 += Long.bitCount(eq6 & ~pb);
+            d5 += Long.bitCount(eq5 & pb);
+            d6 += Long.bitCount(eq4 & pb);
+            d7 += Long.bitCount(eq5 & ~pb);
+            d8 += Long.bitCount(eq3 & pb);
+            d9 += Long.bitCount(eq2 & pb);
+        }
+        histogram[1] += d1;
+        histogram[2] += d2;
+        histogram[3] += d3;
+        histogram[4] += d4;
+        histogram[5] += d5;
+        histogram[6] += d6;
+        histogram[7] += d7;
+        histogram[8] += d8;
+        histogram[9] += d9;
+    }
+
+    public static void add(long[] histogram, long[] other) {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other[i];
+        }
+    }
+
+    public static void report(long[] histogram, PrintStream out) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        out.println("Prize divisions: ");
+        for (int division = 1; division <= DIVISIONS; division++) {
+            out.println("Division " + division + ": " + histogram[division] + " ("
+                    + String.format("%.6f", total == 0 ? 0 : 100.0 * histogram[division] / total) + "%)");
+        }
+        out.println("No prize: " + histogram[NO_PRIZE]);
+    }
+
+    // Evaluates a range of tickets, splitting it in half until it's one chunk
+    @SuppressWarnings("serial")  // Fork/join tasks are never serialized
+    private final class ChunkTask extends RecursiveTask<long[]> {
+        private final long[] tickets;
+        private final int from;
+        private final int to;
+
+        ChunkTask(long[] tickets, int from, int to) {
+            this.tickets = tickets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return evaluate(tickets, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(tickets, from, mid);
+            left.fork();
+            long[] right = new ChunkTask(tickets, mid, to).compute();
+            long[] histogram = left.join();
+            add(histogram, right);
+            return histogram;
+        }
+    }
+}
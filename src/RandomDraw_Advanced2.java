@@ -3,55 +3,45 @@
  */
 
 import java.io.IOException;
-import java.util.*;  
 
 public class RandomDraw_Advanced2 {
-    public static void main (String[] args) throws IOException {
-        for (int i = 0; i < 8; i++) {
-            System.out.println("Draw " + (i + 1) + ": " + CalculateNumbers(i).toString());
+    // Set the number of odd and even numbers per draw
+    public static final int[][] drawConfigurations = {
+        {4, 3},  // Draw 1: 4 odd, 3 even
+        {3, 4},  // Draw 2: 3 odd, 4 even
+        {2, 5},  // Draw 3: 2 odd, 5 even
+        {5, 2},  // Draw 4: 5 odd, 2 even
+        {1, 6},  // Draw 5: 1 odd, 6 even
+        {6, 1},  // Draw 6: 6 odd, 1 even
+        {0, 7},  // Draw 7: 0 odd, 7 even
+        {7, 0}   // Draw 8: 7 odd, 0 even
+    };
+
+    public static void main (String[] args) throws IOException, InterruptedException {
+        // Bulk mode: <count> [seed] streams count tickets to stdout using every core
+        if (args.length > 0) {
+            Long seed = args.length > 1 ? Long.valueOf(args[1]) : null;
+            BulkTicketGenerator.run(Long.parseLong(args[0]), BulkTicketGenerator.ADVANCED, seed,
+                    Runtime.getRuntime().availableProcessors(), "-", false);
+            return;
         }
-    }
-
-    public static ArrayList<Integer> CalculateNumbers(int drawNumber) {
-        Random randomGen = new Random();
-        ArrayList<Integer> numbers = new ArrayList<>();
-        int random;
-        int oddCount = 0;
-        int evenCount = 0;
-
-        // Set the number of odd and even numbers per draw
-        int[][] drawConfigurations = {
-            {4, 3},  // Draw 1: 4 odd, 3 even
-            {3, 4},  // Draw 2: 4 odd, 3 even
-            {2, 5},  // Draw 3: 2 odd, 5 even
-            {5, 2},  // Draw 4: 5 odd, 2 even
-            {1, 6},  // Draw 5: 1 odd, 6 even
-            {6, 1},  // Draw 6: 6 odd, 1 even
-            {0, 7},  // Draw 7: 0 odd, 7 even
-            {7, 0}   // Draw 8: 7 odd, 0 even
-        };
 
-        int targetOdd = drawConfigurations[drawNumber][0];
-        int targetEven = drawConfigurations[drawNumber][1];
-
-        // Calculate 7 numbers from 1-35
-        while (numbers.size() < 7) {
-            random = randomGen.nextInt(35) + 1;
-            if (!numbers.contains(random)) {
-                if (random % 2 == 0 && evenCount < targetEven) {
-                    numbers.add(random);
-                    evenCount++;
-                } else if (random % 2 != 0 && oddCount < targetOdd) {
-                    numbers.add(random);
-                    oddCount++;
-                }
-            }
+        for (int i = 0; i < 8; i++) {
+            System.out.println("Draw " + (i + 1) + ": " + PackedDraw.toString(CalculateNumbers(i)));
         }
+    }
 
-        // Calculate Powerball (random number from 1-20)
-        random = randomGen.nextInt(20) + 1;
-        numbers.add(random);
+    // Returns the draw packed into a long (see PackedDraw)
+    // Draw numbers past the last configuration wrap around to the first one
+    public static long CalculateNumbers(int drawNumber) {
+        int[] configuration = drawConfigurations[Math.floorMod(drawNumber, drawConfigurations.length)];
+        return CalculateNumbers(configuration[0], configuration[1]);
+    }
 
-        return numbers;
+    // Any odd/even split adding up to 7, e.g. CalculateNumbers(4, 3)
+    // Odds are sampled from the 18 odd numbers and evens from the 17 even numbers,
+    // so there are no rejected picks however skewed the split is
+    public static long CalculateNumbers(int targetOdd, int targetEven) {
+        return DrawGenerator.current().nextOddEven(targetOdd, targetEven);
     }
 }
\ No newline at end of file
@@ -1,34 +1,29 @@
 /*Generate 7 regular numbers + 1 powerball number lottery draw */
 import java.io.IOException;
-import java.util.*;  
 
 public class RandomDraw_Simple1 {
-    public static void main (String[] args) throws IOException {
-        for (int i = 0; i < 10; i++) {
-            System.out.println(CalculateNumbers().toString());
+    public static void main (String[] args) throws IOException, InterruptedException {
+        // Bulk mode: <count> [seed] streams count tickets to stdout using every core
+        if (args.length > 0) {
+            Long seed = args.length > 1 ? Long.valueOf(args[1]) : null;
+            BulkTicketGenerator.run(Long.parseLong(args[0]), BulkTicketGenerator.SIMPLE, seed,
+                    Runtime.getRuntime().availableProcessors(), "-", false);
+            return;
         }
-    }
-
-    public static ArrayList CalculateNumbers() {
-        Random randomGen = new Random();
-        ArrayList<Integer> numbers = new ArrayList<Integer>();
-        int random = 0; 
 
-        //Calculate 7 numbers 1-35 
-        for(int i = 0; i < 7; i++) {
-            random = randomGen.nextInt(35) + 1;
-            if (!numbers.contains(random)){
-                numbers.add(random);
-            }
-            else {
-                i--;
+        // 10 different tickets, compared by their TicketIndex rank
+        LongLongHashMap seen = new LongLongHashMap();
+        while (seen.size() < 10) {
+            long draw = CalculateNumbers();
+            if (seen.increment(TicketIndex.rank(draw)) == 1) {
+                System.out.println(PackedDraw.toString(draw));
             }
-        };
-
-        //Calculate Powerball 
-        random = randomGen.nextInt(20) + 1;
-        numbers.add(random);
+        }
+    }
 
-        return numbers;
+    // Returns the draw packed into a long (see PackedDraw)
+    // Uses this thread's DrawGenerator: a partial shuffle of 1-35, no duplicate retries
+    public static long CalculateNumbers() {
+        return DrawGenerator.current().next();
     }
-}
+}
\ No newline at end of file
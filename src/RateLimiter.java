@@ -0,0 +1,31 @@
+/*Spaces out calls to at most permitsPerSecond, shared by any number of threads
+ * Each acquire() books the next free time slot and sleeps until it comes round,
+ * so a burst of workers gets spread out instead of all hitting the site at once.
+ */
+import java.util.concurrent.TimeUnit;
+
+public final class RateLimiter {
+    private final long intervalNanos;
+    private long nextSlot = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    // Block until the caller is allowed to go
+    public void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + intervalNanos;
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*Checkpoint for LottoSite_Scraper so a rerun only fetches what changed or is missing
+ * Kept in a directory:
+ *  - checkpoint.properties : ETag / Last-Modified / row count / when it was fetched, for each scraped year
+ *  - year-YYYY.csv         : the CSV rows scraped for that year
+ * Every year is written as soon as it is scraped, so an interrupted run picks up where it stopped.
+ * A year is final (never asked for again) only once it has rows and they were fetched after the
+ * year ended in Australia, a copy taken while the year was still running is missing its later draws.
+ */
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Properties;
+
+public final class ScrapeCheckpoint {
+    private static final ZoneId DRAW_ZONE = ZoneId.of("Australia/Sydney");
+
+    private final Path directory;
+    private final Path propertiesFile;
+    private final Properties properties = new Properties();
+
+    public ScrapeCheckpoint(Path directory) throws IOException {
+        this.directory = directory;
+        this.propertiesFile = directory.resolve("checkpoint.properties");
+        Files.createDirectories(directory);
+        if (Files.exists(propertiesFile)) {
+            try (Reader reader = Files.newBufferedReader(propertiesFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+    }
+
+    // True when the rows for this year are on disk
+    public synchronized boolean hasYear(int year) {
+        return properties.containsKey(year + ".rows") && Files.exists(yearFile(year));
+    }
+
+    // True when the cached rows are the whole year: some were found and they were fetched after it
+    // ended (checkpoints from before fetch times were kept count as not final)
+    public synchronized boolean isFinal(int year) {
+        String fetched = properties.getProperty(year + ".fetched");
+        if (!hasYear(year) || fetched == null || Integer.parseInt(properties.getProperty(year + ".rows")) == 0) {
+            return false;
+        }
+        Instant yearEnd = LocalDate.of(year + 1, 1, 1).atStartOfDay(DRAW_ZONE).toInstant();
+        return !Instant.parse(fetched).isBefore(yearEnd);
+    }
+
+    public synchronized String etag(int year) {
+        return properties.getProperty(year + ".etag");
+    }
+
+    public synchronized String lastModified(int year) {
+        return properties.getProperty(year + ".lastModified");
+    }
+
+    // Rows previously scraped for a year ("" when there are none)
+    public String rows(int year) throws IOException {
+        Path file = yearFile(year);
+        return Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8) : "";
+    }
+
+    // Store a freshly scraped year and its validators, then save the checkpoint
+    public synchronized void saveYear(int year, String rows, int rowCount, String etag, String lastModified)
+            throws IOException {
+        Path file = yearFile(year);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, rows, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        properties.setProperty(year + ".rows", Integer.toString(rowCount));
+        properties.setProperty(year + ".fetched", Instant.now().toString());
+        setOrRemove(year + ".etag", etag);
+        setOrRemove(year + ".lastModified", lastModified);
+        save();
+    }
+
+    // The server says the cached rows are still current (304), so they're as good as fetched now
+    public synchronized void confirmYear(int year) throws IOException {
+        properties.setProperty(year + ".fetched", Instant.now().toString());
+        save();
+    }
+
+    private void setOrRemove(String key, String value) {
+        if (value == null) {
+            properties.remove(key);
+        } else {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private void save() throws IOException {
+        Path temp = propertiesFile.resolveSibling("checkpoint.properties.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "LottoSite_Scraper checkpoint");
+        }
+        Files.move(temp, propertiesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path yearFile(int year) {
+        return directory.resolve("year-" + year + ".csv");
+    }
+}
@@ -0,0 +1,139 @@
+/*Local stand-in for the results archive site, for testing LottoSite_Scraper offline
+ * Serves /results-archive-YEAR (any prefix) from either
+ *  - a single HTML file, returned for every year (e.g. bin/test_training_HTML.html), or
+ *  - a directory holding results-archive-YEAR.html files (404 for missing years)
+ * Responses carry an ETag and Last-Modified, and conditional requests get 304 Not Modified,
+ * so checkpoint reruns can be checked too. Touching a file makes it "change".
+ *
+ * run using java -cp ../bin ScraperFixtureServer ../bin/test_training_HTML.html [port]
+ *   then    java -cp ../bin:../bin/jsoup-1.18.1.jar LottoSite_Scraper --base-url http://localhost:8089/results-archive- --rate 50
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ScraperFixtureServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8089;
+    private static final Pattern YEAR_PATH = Pattern.compile("results-archive-(\\d{4})$");
+
+    private final Path source;
+    private final HttpServer server;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    private ScraperFixtureServer(Path source, int port) throws IOException {
+        this.source = source;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    // Start serving, port 0 picks a free port
+    public static ScraperFixtureServer start(Path source, int port) throws IOException {
+        ScraperFixtureServer fixture = new ScraperFixtureServer(source, port);
+        fixture.server.start();
+        return fixture;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ScraperFixtureServer <html file | directory> [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        ScraperFixtureServer fixture = start(Paths.get(args[0]), port);
+        System.out.println("Serving " + args[0] + " at " + fixture.baseUrl());
+    }
+
+    // Base URL to hand to LottoSite_Scraper
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/results-archive-";
+    }
+
+    // Number of 200 responses with a page body so far
+    public int fullResponses() {
+        return fullResponses.get();
+    }
+
+    public int notModifiedResponses() {
+        return notModifiedResponses.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Matcher matcher = YEAR_PATH.matcher(exchange.getRequestURI().getPath());
+            Path page = null;
+            if (matcher.find()) {
+                page = Files.isDirectory(source) ? source.resolve("results-archive-" + matcher.group(1) + ".html") : source;
+            }
+            if (page == null || !Files.isRegularFile(page)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            // Validators from the file's size and modification time (HTTP dates have second precision)
+            Instant modified = Files.getLastModifiedTime(page).toInstant().truncatedTo(ChronoUnit.SECONDS);
+            String etag = "\"" + Long.toHexString(Files.size(page)) + "-" + Long.toHexString(modified.getEpochSecond()) + "\"";
+            String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(modified, ZoneOffset.UTC));
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", lastModified);
+
+            if (notModified(exchange, etag, modified)) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = Files.readAllBytes(page);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            fullResponses.incrementAndGet();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since when both are sent
+    private static boolean notModified(HttpExchange exchange, String etag, Instant modified) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.equals(etag) || ifNoneMatch.equals("*");
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return !modified.isAfter(since);
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
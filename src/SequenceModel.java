@@ -0,0 +1,728 @@
+/*The Tensorflow3 / Tensorflow4 network in plain Java (float[] parameters, MatrixMath kernels)
+ *   input [batch, timeSteps, 8] (7 regular numbers / 35 + Powerball / 20 per past draw)
+ *   -> LSTM(64), last step only (Tensorflow4) or the window flattened (lstmUnits 0, Tensorflow3)
+ *   -> Dense 128, LeakyReLU
+ *   -> Dense 256, LeakyReLU, BatchNorm, Dropout
+ *   -> Dense 128, LeakyReLU, BatchNorm, Dropout
+ *   -> regularNumbers head: Dense 7, sigmoid      powerball head: Dense 1, sigmoid (or linear)
+ * Loss is the sum of the two heads' mean squared errors, like the tfjs compile() of both scripts.
+ * LSTM gates are in the Keras order (input, forget, cell, output) with the forget bias starting
+ * at 1, kernels start Glorot uniform. Input windows and targets are read by offset wherever they
+ * are (a WindowDataset batch points straight into the history). Every buffer is sized for the
+ * largest batch seen and reused, so a training step doesn't allocate. Not thread safe, one model
+ * per training run.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public final class SequenceModel {
+    public static final int FEATURES = PackedDraw.REGULAR_NUMBERS + 1;  // Also the outputs: 7 regular + Powerball
+    public static final int REGULAR_OUTPUTS = PackedDraw.REGULAR_NUMBERS;
+
+    private static final float BATCH_NORM_EPSILON = 1e-3f;
+    private static final float BATCH_NORM_MOMENTUM = 0.99f;
+
+    // Hyperparameters, the defaults are Tensorflow4's
+    public static final class Config {
+        public int timeSteps = 10;
+        public int lstmUnits = 64;              // 0 = no LSTM, the dense stack sees the whole window
+        public int[] hiddenUnits = {128, 256, 128};
+        public float leakyAlpha = 0.01f;        // 0 = ReLU
+        public float dropout = 0.4f;
+        public boolean sigmoidPowerball = true;  // Tensorflow3's Powerball head was linear
+        public String optimizer = "rmsprop";
+        public float learningRate = 0.001f;
+        public int batchSize = 32;
+        public int epochs = 50;
+        public int patience = 10;
+        public float validationSplit = 0.1f;
+        public boolean augment = true;          // Jitter the input regular numbers by +-0.5
+        public long seed = 42;
+
+        // Tensorflow4: LSTM over the last 10 draws, LeakyReLU, dropout 0.4, rmsprop
+        public static Config lstm() {
+            return new Config();
+        }
+
+        // Tensorflow3: the last draw only, ReLU, dropout 0.3, adam, linear Powerball head
+        public static Config dense() {
+            Config config = new Config();
+            config.timeSteps = 1;
+            config.lstmUnits = 0;
+            config.leakyAlpha = 0f;
+            config.dropout = 0.3f;
+            config.sigmoidPowerball = false;
+            config.optimizer = "adam";
+            config.patience = 5;
+            config.augment = false;
+            return config;
+        }
+
+        public static Config of(String architecture) {
+            switch (architecture) {
+                case "lstm": return lstm();
+                case "dense": return dense();
+                default: throw new IllegalArgumentException("Unknown model: " + architecture + " (lstm or dense)");
+            }
+        }
+
+        public Config copy() {
+            Config copy = new Config();
+            copy.timeSteps = timeSteps;
+            copy.lstmUnits = lstmUnits;
+            copy.hiddenUnits = hiddenUnits.clone();
+            copy.leakyAlpha = leakyAlpha;
+            copy.dropout = dropout;
+            copy.sigmoidPowerball = sigmoidPowerball;
+            copy.optimizer = optimizer;
+            copy.learningRate = learningRate;
+            copy.batchSize = batchSize;
+            copy.epochs = epochs;
+            copy.patience = patience;
+            copy.validationSplit = validationSplit;
+            copy.augment = augment;
+            copy.seed = seed;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return "timeSteps=" + timeSteps + " lstm=" + lstmUnits + " hidden=" + Arrays.toString(hiddenUnits)
+                    + " alpha=" + leakyAlpha + " dropout=" + dropout + " " + optimizer + " lr=" + learningRate
+                    + " batch=" + batchSize + " patience=" + patience;
+        }
+    }
+
+    private final Config config;
+    private final MatrixMath math;
+    private SplittableRandom random;  // Initial weights, then dropout masks
+    private final Optimizer optimizer;
+
+    private final Lstm lstm;                // null for the dense model
+    private final Dense[] hidden;
+    private final BatchNorm[] norms;        // null where a hidden layer has none
+    private final Dropout[] dropouts;
+    private final Dense regularHead;
+    private final Dense powerballHead;
+
+    private final List<float[]> parameterList = new ArrayList<>();
+    private final List<float[]> gradientList = new ArrayList<>();
+    private float[][] parameters;
+    private float[][] gradients;
+
+    private float[] outputGradient = new float[0];  // Loss gradient at the heads: [batch, 7] then [batch, 1]
+    private float[] sharedGradient = new float[0];
+    private float[] predictOutput = new float[FEATURES];
+    private int[] windowOffsets = new int[0];  // b x inputSize() and b x 8, for the flat array methods
+    private int[] targetOffsets = new int[0];
+
+    public SequenceModel(Config config, MatrixMath math) {
+        this.config = config.copy();
+        this.math = math;
+        random = new SplittableRandom(config.seed);
+        optimizer = Optimizer.of(config.optimizer, config.learningRate);
+
+        int width;
+        if (config.lstmUnits > 0) {
+            lstm = new Lstm(FEATURES, config.lstmUnits, config.timeSteps);
+            width = config.lstmUnits;
+        } else {
+            lstm = null;
+            width = FEATURES * config.timeSteps;
+        }
+        int layers = config.hiddenUnits.length;
+        hidden = new Dense[layers];
+        norms = new BatchNorm[layers];
+        dropouts = new Dropout[layers];
+        for (int i = 0; i < layers; i++) {
+            hidden[i] = new Dense(width, config.hiddenUnits[i], Dense.LEAKY, config.leakyAlpha);
+            width = config.hiddenUnits[i];
+            // Both scripts normalise and drop out after every hidden layer but the first
+            if (i > 0) {
+                norms[i] = new BatchNorm(width);
+                dropouts[i] = config.dropout > 0 ? new Dropout(config.dropout, width) : null;
+            }
+        }
+        regularHead = new Dense(width, REGULAR_OUTPUTS, Dense.SIGMOID, 0f);
+        powerballHead = new Dense(width, 1, config.sigmoidPowerball ? Dense.SIGMOID : Dense.LINEAR, 0f);
+        parameters = parameterList.toArray(new float[0][]);
+        gradients = gradientList.toArray(new float[0][]);
+    }
+
+    public Config config() {
+        return config.copy();
+    }
+
+    // Width of one input window (timeSteps x 8 floats)
+    public int inputSize() {
+        return config.timeSteps * FEATURES;
+    }
+
+    public long parameterCount() {
+        long count = 0;
+        for (float[] parameter : parameters) {
+            count += parameter.length;
+        }
+        return count;
+    }
+
+    // One optimizer step on a batch, inputs [batch, timeSteps, 8], targets [batch, 8]. Returns the loss
+    public double trainBatch(float[] inputs, float[] targets, int batch) {
+        contiguous(batch);
+        return trainBatch(inputs, windowOffsets, targets, targetOffsets, batch);
+    }
+
+    // Same for a batch of windows straight out of the history
+    public double trainBatch(WindowDataset.Batch batch) {
+        return trainBatch(batch.inputs, batch.inputStarts, batch.targets, batch.targetStarts, batch.size);
+    }
+
+    private double trainBatch(float[] inputs, int[] inputStarts, float[] targets, int[] targetStarts, int batch) {
+        double loss = computeGradients(inputs, inputStarts, targets, targetStarts, batch);
+        optimizer.update(parameters, gradients);
+        return loss;
+    }
+
+    // Training mode loss of a batch with its gradients left in gradients()
+    double computeGradients(float[] inputs, float[] targets, int batch) {
+        contiguous(batch);
+        return computeGradients(inputs, windowOffsets, targets, targetOffsets, batch);
+    }
+
+    // Window b is inputs[inputStarts[b] ...], its target targets[targetStarts[b] ...]
+    private double computeGradients(float[] inputs, int[] inputStarts, float[] targets, int[] targetStarts, int batch) {
+        for (float[] gradient : gradients) {
+            Arrays.fill(gradient, 0f);
+        }
+        forward(inputs, inputStarts, batch, true);
+        double loss = lossGradient(targets, targetStarts, batch);
+
+        float[] regular = regularHead.backward(outputGradient, 0, batch);
+        float[] powerball = powerballHead.backward(outputGradient, batch * REGULAR_OUTPUTS, batch);
+        int width = regularHead.in * batch;
+        if (sharedGradient.length < width) {
+            sharedGradient = new float[width];
+        }
+        for (int i = 0; i < width; i++) {
+            sharedGradient[i] = regular[i] + powerball[i];
+        }
+        float[] gradient = sharedGradient;
+        for (int i = hidden.length - 1; i >= 0; i--) {
+            if (dropouts[i] != null) {
+                gradient = dropouts[i].backward(gradient, batch);
+            }
+            if (norms[i] != null) {
+                gradient = norms[i].backward(gradient, batch);
+            }
+            gradient = hidden[i].backward(gradient, 0, batch);
+        }
+        if (lstm != null) {
+            lstm.backward(gradient, batch);
+        }
+        return loss;
+    }
+
+    // Every parameter array, always in the same order (LSTM, hidden layers, heads)
+    float[][] parameters() {
+        return parameters;
+    }
+
+    float[][] gradients() {
+        return gradients;
+    }
+
+    // Batch norm running means and variances (not trained, but part of the model), in layer order
+    float[][] runningStatistics() {
+        List<float[]> statistics = new ArrayList<>();
+        for (BatchNorm norm : norms) {
+            if (norm != null) {
+                statistics.add(norm.runningMean);
+                statistics.add(norm.runningVariance);
+            }
+        }
+        return statistics.toArray(new float[0][]);
+    }
+
+    Optimizer optimizer() {
+        return optimizer;
+    }
+
+    // Restart the dropout masks from a new seed (a restored model shouldn't replay the first run's masks)
+    void reseed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    // Loss without training (dropout off, batch norm on its running averages)
+    public double loss(float[] inputs, float[] targets, int batch) {
+        contiguous(batch);
+        forward(inputs, windowOffsets, batch, false);
+        return lossGradient(targets, targetOffsets, batch);
+    }
+
+    public double loss(WindowDataset.Batch batch) {
+        forward(batch.inputs, batch.inputStarts, batch.size, false);
+        return lossGradient(batch.targets, batch.targetStarts, batch.size);
+    }
+
+    // Outputs for one window of timeSteps draws: 7 regular numbers then the Powerball, still normalised
+    public float[] predict(float[] window) {
+        predict(window, 1, predictOutput);
+        return predictOutput.clone();
+    }
+
+    // Outputs [batch, 8] for inputs [batch, timeSteps, 8]
+    public void predict(float[] inputs, int batch, float[] out) {
+        contiguous(batch);
+        forward(inputs, windowOffsets, batch, false);
+        for (int b = 0; b < batch; b++) {
+            System.arraycopy(regularHead.output, b * REGULAR_OUTPUTS, out, b * FEATURES, REGULAR_OUTPUTS);
+            out[b * FEATURES + REGULAR_OUTPUTS] = powerballHead.output[b];
+        }
+    }
+
+    // Offsets of back to back windows and targets, for the flat array methods
+    private void contiguous(int batch) {
+        if (windowOffsets.length < batch) {
+            windowOffsets = new int[batch];
+            targetOffsets = new int[batch];
+            for (int b = 0; b < batch; b++) {
+                windowOffsets[b] = b * inputSize();
+                targetOffsets[b] = b * FEATURES;
+            }
+        }
+    }
+
+    private void forward(float[] inputs, int[] inputStarts, int batch, boolean training) {
+        float[] x;
+        int[] rows = null;  // The dense model's first layer reads each window where it is
+        if (lstm != null) {
+            x = lstm.forward(inputs, inputStarts, batch);
+        } else {
+            x = inputs;
+            rows = inputStarts;
+        }
+        for (int i = 0; i < hidden.length; i++) {
+            x = hidden[i].forward(x, i == 0 ? rows : null, batch);
+            if (norms[i] != null) {
+                x = norms[i].forward(x, batch, training);
+            }
+            if (dropouts[i] != null && training) {
+                x = dropouts[i].forward(x, batch);
+            }
+        }
+        regularHead.forward(x, null, batch);
+        powerballHead.forward(x, null, batch);
+    }
+
+    // Sum of both mean squared errors, and its gradient at the head outputs into outputGradient
+    private double lossGradient(float[] targets, int[] targetStarts, int batch) {
+        if (outputGradient.length < batch * FEATURES) {
+            outputGradient = new float[batch * FEATURES];
+        }
+        double regularError = 0;
+        double powerballError = 0;
+        float regularScale = 2f / (batch * REGULAR_OUTPUTS);
+        float powerballScale = 2f / batch;
+        for (int b = 0; b < batch; b++) {
+            int target = targetStarts[b];
+            for (int j = 0; j < REGULAR_OUTPUTS; j++) {
+                float error = regularHead.output[b * REGULAR_OUTPUTS + j] - targets[target + j];
+                regularError += error * error;
+                outputGradient[b * REGULAR_OUTPUTS + j] = regularScale * error;
+            }
+            float error = powerballHead.output[b] - targets[target + REGULAR_OUTPUTS];
+            powerballError += error * error;
+            // The Powerball head's gradient sits after all the regular ones
+            outputGradient[batch * REGULAR_OUTPUTS + b] = powerballScale * error;
+        }
+        return regularError / (batch * REGULAR_OUTPUTS) + powerballError / batch;
+    }
+
+    private float[] parameter(int size, float[][] gradientHolder) {
+        float[] parameter = new float[size];
+        float[] gradient = new float[size];
+        parameterList.add(parameter);
+        gradientList.add(gradient);
+        gradientHolder[0] = gradient;
+        return parameter;
+    }
+
+    private void glorot(float[] weights, int fanIn, int fanOut) {
+        double limit = Math.sqrt(6.0 / (fanIn + fanOut));
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (float) ((random.nextDouble() * 2 - 1) * limit);
+        }
+    }
+
+    private static float sigmoid(float x) {
+        return 1f / (1f + (float) Math.exp(-x));
+    }
+
+    // Fully connected layer with its activation, y = act(x W + b)
+    private final class Dense {
+        static final int LINEAR = 0;
+        static final int LEAKY = 1;
+        static final int SIGMOID = 2;
+
+        final int in;
+        final int out;
+        final int activation;
+        final float alpha;
+        final float[] weights;  // [in, out]
+        final float[] bias;
+        final float[] weightGradient;
+        final float[] biasGradient;
+
+        float[] input;
+        int[] inputStarts;  // Row b of the input at input[inputStarts[b]], null = back to back
+        float[] output = new float[0];
+        float[] inputGradient = new float[0];
+
+        Dense(int in, int out, int activation, float alpha) {
+            this.in = in;
+            this.out = out;
+            this.activation = activation;
+            this.alpha = alpha;
+            float[][] holder = new float[1][];
+            weights = parameter(in * out, holder);
+            weightGradient = holder[0];
+            bias = parameter(out, holder);
+            biasGradient = holder[0];
+            glorot(weights, in, out);
+        }
+
+        float[] forward(float[] x, int[] starts, int batch) {
+            input = x;
+            inputStarts = starts;
+            if (output.length < batch * out) {
+                output = new float[batch * out];
+            }
+            if (starts != null) {
+                math.multiplyGathered(x, starts, weights, 0, output, 0, batch, in, out);
+            } else {
+                math.multiply(x, 0, weights, 0, output, 0, batch, in, out, false);
+            }
+            for (int b = 0; b < batch; b++) {
+                int row = b * out;
+                for (int j = 0; j < out; j++) {
+                    float y = output[row + j] + bias[j];
+                    if (activation == LEAKY) {
+                        y = y > 0 ? y : alpha * y;
+                    } else if (activation == SIGMOID) {
+                        y = sigmoid(y);
+                    }
+                    output[row + j] = y;
+                }
+            }
+            return output;
+        }
+
+        // gradient[offset ...] is the loss gradient at the output (overwritten), returns the one at the input
+        float[] backward(float[] gradient, int offset, int batch) {
+            int size = batch * out;
+            for (int i = 0; i < size; i++) {
+                if (activation == LEAKY) {
+                    // The output has the sign of the pre-activation, so it tells which slope applied
+                    gradient[offset + i] *= output[i] > 0 ? 1f : alpha;
+                } else if (activation == SIGMOID) {
+                    gradient[offset + i] *= output[i] * (1 - output[i]);
+                }
+            }
+            if (inputStarts != null) {
+                math.multiplyTransposeAGathered(input, inputStarts, gradient, offset, weightGradient, 0, batch, in, out);
+            } else {
+                math.multiplyTransposeA(input, 0, gradient, offset, weightGradient, 0, batch, in, out);
+            }
+            for (int b = 0; b < batch; b++) {
+                for (int j = 0; j < out; j++) {
+                    biasGradient[j] += gradient[offset + b * out + j];
+                }
+            }
+            if (inputGradient.length < batch * in) {
+                inputGradient = new float[batch * in];
+            }
+            math.multiplyTransposeB(gradient, offset, weights, 0, inputGradient, 0, batch, out, in);
+            return inputGradient;
+        }
+    }
+
+    // Batch normalisation per feature, running averages for inference
+    private final class BatchNorm {
+        final int width;
+        final float[] gamma;
+        final float[] beta;
+        final float[] gammaGradient;
+        final float[] betaGradient;
+        final float[] runningMean;
+        final float[] runningVariance;
+        final float[] inverseStd;
+        float[] normalised = new float[0];
+        float[] output = new float[0];
+
+        BatchNorm(int width) {
+            this.width = width;
+            float[][] holder = new float[1][];
+            gamma = parameter(width, holder);
+            gammaGradient = holder[0];
+            beta = parameter(width, holder);
+            betaGradient = holder[0];
+            Arrays.fill(gamma, 1f);
+            runningMean = new float[width];
+            runningVariance = new float[width];
+            Arrays.fill(runningVariance, 1f);
+            inverseStd = new float[width];
+        }
+
+        float[] forward(float[] x, int batch, boolean training) {
+            if (output.length < batch * width) {
+                output = new float[batch * width];
+                normalised = new float[batch * width];
+            }
+            for (int j = 0; j < width; j++) {
+                float mean;
+                float variance;
+                if (training) {
+                    float sum = 0;
+                    for (int b = 0; b < batch; b++) {
+                        sum += x[b * width + j];
+                    }
+                    mean = sum / batch;
+                    float squares = 0;
+                    for (int b = 0; b < batch; b++) {
+                        float d = x[b * width + j] - mean;
+                        squares += d * d;
+                    }
+                    variance = squares / batch;
+                    runningMean[j] = BATCH_NORM_MOMENTUM * runningMean[j] + (1 - BATCH_NORM_MOMENTUM) * mean;
+                    runningVariance[j] = BATCH_NORM_MOMENTUM * runningVariance[j] + (1 - BATCH_NORM_MOMENTUM) * variance;
+                } else {
+                    mean = runningMean[j];
+                    variance = runningVariance[j];
+                }
+                float inverse = 1f / (float) Math.sqrt(variance + BATCH_NORM_EPSILON);
+                inverseStd[j] = inverse;
+                for (int b = 0; b < batch; b++) {
+                    int i = b * width + j;
+                    float n = (x[i] - mean) * inverse;
+                    normalised[i] = n;
+                    output[i] = gamma[j] * n + beta[j];
+                }
+            }
+            return output;
+        }
+
+        // Overwrites gradient with the gradient at the input
+        float[] backward(float[] gradient, int batch) {
+            for (int j = 0; j < width; j++) {
+                float sum = 0;
+                float dot = 0;
+                for (int b = 0; b < batch; b++) {
+                    int i = b * width + j;
+                    sum += gradient[i];
+                    dot += gradient[i] * normalised[i];
+                }
+                gammaGradient[j] += dot;
+                betaGradient[j] += sum;
+                float scale = gamma[j] * inverseStd[j] / batch;
+                for (int b = 0; b < batch; b++) {
+                    int i = b * width + j;
+                    gradient[i] = scale * (batch * gradient[i] - sum - normalised[i] * dot);
+                }
+            }
+            return gradient;
+        }
+    }
+
+    // Inverted dropout: kept units are scaled by 1 / (1 - rate) so inference needs no change
+    private final class Dropout {
+        final float rate;
+        final int width;
+        float[] mask = new float[0];
+
+        Dropout(float rate, int width) {
+            this.rate = rate;
+            this.width = width;
+        }
+
+        // Masks x in place (it's the batch norm's own output buffer)
+        float[] forward(float[] x, int batch) {
+            int size = batch * width;
+            if (mask.length < size) {
+                mask = new float[size];
+            }
+            float keep = 1f / (1 - rate);
+            for (int i = 0; i < size; i++) {
+                mask[i] = random.nextDouble() < rate ? 0f : keep;
+                x[i] *= mask[i];
+            }
+            return x;
+        }
+
+        float[] backward(float[] gradient, int batch) {
+            int size = batch * width;
+            for (int i = 0; i < size; i++) {
+                gradient[i] *= mask[i];
+            }
+            return gradient;
+        }
+    }
+
+    // LSTM over the window, returns the last step's hidden state
+    private final class Lstm {
+        final int inputs;
+        final int units;
+        final int steps;
+        final float[] inputWeights;      // [inputs, 4 units]
+        final float[] recurrentWeights;  // [units, 4 units]
+        final float[] bias;              // [4 units]
+        final float[] inputWeightGradient;
+        final float[] recurrentWeightGradient;
+        final float[] biasGradient;
+
+        float[] input;
+        int[] rowStarts = new int[0];       // Step t of window b at input[rowStarts[b * steps + t]]
+        float[] inputGates = new float[0];  // [batch * steps, 4 units]: x W + b, row b * steps + t
+        float[] recurrent = new float[0];   // [batch, 4 units]: h(t-1) U
+        float[] gates = new float[0];       // [steps, batch, 4 units] after activation
+        float[] cells = new float[0];       // [steps, batch, units]
+        float[] cellTanh = new float[0];
+        float[] hiddenStates = new float[0];
+        float[] output = new float[0];      // [batch, units], the last step
+        float[] gateGradient = new float[0];  // Same layout as inputGates
+        float[] stepGradient = new float[0];  // [batch, 4 units]
+        float[] hiddenGradient = new float[0];
+        float[] cellGradient = new float[0];
+
+        Lstm(int inputs, int units, int steps) {
+            this.inputs = inputs;
+            this.units = units;
+            this.steps = steps;
+            float[][] holder = new float[1][];
+            inputWeights = parameter(inputs * 4 * units, holder);
+            inputWeightGradient = holder[0];
+            recurrentWeights = parameter(units * 4 * units, holder);
+            recurrentWeightGradient = holder[0];
+            bias = parameter(4 * units, holder);
+            biasGradient = holder[0];
+            glorot(inputWeights, inputs, 4 * units);
+            glorot(recurrentWeights, units, 4 * units);
+            Arrays.fill(bias, units, 2 * units, 1f);  // Forget gate starts open
+        }
+
+        private void ensureCapacity(int batch) {
+            int gateSize = batch * steps * 4 * units;
+            if (gates.length < gateSize) {
+                inputGates = new float[gateSize];
+                gates = new float[gateSize];
+                gateGradient = new float[gateSize];
+                recurrent = new float[batch * 4 * units];
+                stepGradient = new float[batch * 4 * units];
+                cells = new float[batch * steps * units];
+                cellTanh = new float[batch * steps * units];
+                hiddenStates = new float[batch * steps * units];
+                output = new float[batch * units];
+                rowStarts = new int[batch * steps];
+                hiddenGradient = new float[batch * units];
+                cellGradient = new float[batch * units];
+            }
+        }
+
+        float[] forward(float[] x, int[] windowStarts, int batch) {
+            input = x;
+            ensureCapacity(batch);
+            int width = 4 * units;
+            for (int b = 0; b < batch; b++) {
+                for (int t = 0; t < steps; t++) {
+                    rowStarts[b * steps + t] = windowStarts[b] + t * inputs;
+                }
+            }
+            // The input part of every step in one product, rows are (sample, step)
+            math.multiplyGathered(x, rowStarts, inputWeights, 0, inputGates, 0, batch * steps, inputs, width);
+            for (int t = 0; t < steps; t++) {
+                if (t > 0) {
+                    math.multiply(hiddenStates, (t - 1) * batch * units, recurrentWeights, 0, recurrent, 0,
+                            batch, units, width, false);
+                }
+                for (int b = 0; b < batch; b++) {
+                    int z = (b * steps + t) * width;
+                    int r = b * width;
+                    int g = (t * batch + b) * width;
+                    int s = (t * batch + b) * units;
+                    int previous = ((t - 1) * batch + b) * units;
+                    for (int j = 0; j < units; j++) {
+                        float zi = inputGates[z + j] + bias[j];
+                        float zf = inputGates[z + units + j] + bias[units + j];
+                        float zc = inputGates[z + 2 * units + j] + bias[2 * units + j];
+                        float zo = inputGates[z + 3 * units + j] + bias[3 * units + j];
+                        if (t > 0) {
+                            zi += recurrent[r + j];
+                            zf += recurrent[r + units + j];
+                            zc += recurrent[r + 2 * units + j];
+                            zo += recurrent[r + 3 * units + j];
+                        }
+                        float i = sigmoid(zi);
+                        float f = sigmoid(zf);
+                        float c = (float) Math.tanh(zc);
+                        float o = sigmoid(zo);
+                        float cell = i * c + (t > 0 ? f * cells[previous + j] : 0f);
+                        float tanh = (float) Math.tanh(cell);
+                        gates[g + j] = i;
+                        gates[g + units + j] = f;
+                        gates[g + 2 * units + j] = c;
+                        gates[g + 3 * units + j] = o;
+                        cells[s + j] = cell;
+                        cellTanh[s + j] = tanh;
+                        hiddenStates[s + j] = o * tanh;
+                    }
+                }
+            }
+            System.arraycopy(hiddenStates, (steps - 1) * batch * units, output, 0, batch * units);
+            return output;
+        }
+
+        // Backpropagation through time from the gradient at the last hidden state
+        void backward(float[] gradient, int batch) {
+            int width = 4 * units;
+            System.arraycopy(gradient, 0, hiddenGradient, 0, batch * units);
+            Arrays.fill(cellGradient, 0, batch * units, 0f);
+            for (int t = steps - 1; t >= 0; t--) {
+                for (int b = 0; b < batch; b++) {
+                    int g = (t * batch + b) * width;
+                    int s = (t * batch + b) * units;
+                    int previous = ((t - 1) * batch + b) * units;
+                    int d = b * width;
+                    for (int j = 0; j < units; j++) {
+                        float i = gates[g + j];
+                        float f = gates[g + units + j];
+                        float c = gates[g + 2 * units + j];
+                        float o = gates[g + 3 * units + j];
+                        float tanh = cellTanh[s + j];
+                        float dh = hiddenGradient[b * units + j];
+                        float dc = cellGradient[b * units + j] + dh * o * (1 - tanh * tanh);
+                        float previousCell = t > 0 ? cells[previous + j] : 0f;
+                        stepGradient[d + j] = dc * c * i * (1 - i);
+                        stepGradient[d + units + j] = dc * previousCell * f * (1 - f);
+                        stepGradient[d + 2 * units + j] = dc * i * (1 - c * c);
+                        stepGradient[d + 3 * units + j] = dh * tanh * o * (1 - o);
+                        cellGradient[b * units + j] = dc * f;
+                    }
+                    System.arraycopy(stepGradient, d, gateGradient, (b * steps + t) * width, width);
+                }
+                if (t > 0) {
+                    math.multiplyTransposeA(hiddenStates, (t - 1) * batch * units, stepGradient, 0,
+                            recurrentWeightGradient, 0, batch, units, width);
+                    math.multiplyTransposeB(stepGradient, 0, recurrentWeights, 0, hiddenGradient, 0, batch, width, units);
+                }
+            }
+            math.multiplyTransposeAGathered(input, rowStarts, gateGradient, 0, inputWeightGradient, 0, batch * steps, inputs, width);
+            int rows = batch * steps;
+            for (int row = 0; row < rows; row++) {
+                for (int j = 0; j < width; j++) {
+                    biasGradient[j] += gateGradient[row * width + j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*Trains SequenceModel on the draw history and predicts the next draw, the JVM replacement for
+ * running Tensorflow3 / Tensorflow4 under Node
+ * - Draws come from the shared loaders (DrawCsvReader / DrawHistoryFile), oldest first: the archive
+ *   CSVs list the newest draw first, so they're turned around (the Node scripts trained and
+ *   predicted on the file order as it was)
+ * - Rows with fewer than 7 regular numbers (the older games) are padded with the most common
+ *   regular number, numbers are normalised by 35 and the Powerball by 20, like the scripts
+ * - Samples are timeSteps consecutive draws -> the draw after them; the last 10% are held out for
+ *   validation, the rest are shuffled every epoch and trained in mini-batches of 32 with early
+ *   stopping on the validation loss. Windows aren't copied out of the history (WindowDataset),
+ *   so long --time-steps over the full history cost no more memory than short ones
+ * - Batches are made on a background thread (BatchPrefetcher), jittered afresh every epoch
+ * - Big matrix products are split over --threads cores (see MatrixMath)
+ * - With --checkpoint the trained model is saved (ModelCheckpoint). Next time it warm starts:
+ *   only the windows ending in draws added since are trained (--epochs caps the fine-tuning),
+ *   --predict-only just loads it and predicts, and --retrain starts over
+ *
+ * run using java -cp ../bin SequenceTrainer [--history powerball_results_subset.csv] [--model lstm|dense]
+ *           [--epochs 50] [--time-steps 10] [--batch 32] [--optimizer adam|rmsprop] [--learning-rate 0.001]
+ *           [--dropout 0.4] [--patience 10] [--no-augment] [--seed 42] [--threads N]
+ *           [--checkpoint model.ckpt [--retrain | --predict-only]]
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public final class SequenceTrainer {
+    private SequenceTrainer() {
+    }
+
+    // How a fit() went
+    public static final class Fit {
+        public int epochs;
+        public double trainLoss;
+        public double validationLoss = Double.NaN;
+        public double bestValidationLoss = Double.POSITIVE_INFINITY;
+        public long millis;
+        public long waitMillis;  // Of which the trainer waited for batches
+        public boolean outOfTime;  // Stopped by the deadline rather than by early stopping or the epoch count
+    }
+
+    public static void main(String[] args) throws IOException {
+        String historyFile = null;
+        String architecture = "lstm";
+        String checkpointFile = null;
+        boolean retrain = false;
+        boolean predictOnly = false;
+        int epochs = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--model")) {
+                architecture = args[++i];
+            }
+        }
+        SequenceModel.Config config = SequenceModel.Config.of(architecture);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--history": historyFile = args[++i]; break;
+                case "--model": i++; break;
+                case "--checkpoint": checkpointFile = args[++i]; break;
+                case "--retrain": retrain = true; break;
+                case "--predict-only": predictOnly = true; break;
+                case "--epochs": epochs = Integer.parseInt(args[++i]); break;
+                case "--time-steps": config.timeSteps = Integer.parseInt(args[++i]); break;
+                case "--batch": config.batchSize = Integer.parseInt(args[++i]); break;
+                case "--optimizer": config.optimizer = args[++i]; break;
+                case "--learning-rate": config.learningRate = Float.parseFloat(args[++i]); break;
+                case "--dropout": config.dropout = Float.parseFloat(args[++i]); break;
+                case "--patience": config.patience = Integer.parseInt(args[++i]); break;
+                case "--no-augment": config.augment = false; break;
+                case "--seed": config.seed = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        Path checkpointPath = checkpointFile != null ? Paths.get(checkpointFile) : null;
+        boolean warmStart = checkpointPath != null && !retrain && Files.exists(checkpointPath);
+        if (predictOnly && !warmStart) {
+            System.err.println("--predict-only needs an existing --checkpoint");
+            return;
+        }
+
+        MatrixMath math = new MatrixMath(threads);
+        try {
+            if (predictOnly) {
+                // Straight from the checkpoint, the history is only read when one is given
+                long start = System.nanoTime();
+                ModelCheckpoint checkpoint = ModelCheckpoint.load(checkpointPath, math);
+                float[] window = checkpoint.recentWindow();
+                if (historyFile != null) {
+                    long[] draws = DrawHistoryFile.loadDraws(historyFile);
+                    window = lastWindow(checkpoint.model, normalise(draws, checkpoint.modeNumber), draws.length);
+                }
+                printPrediction(checkpoint.model.predict(window), System.out);
+                System.out.println("Predicted in " + (System.nanoTime() - start) / 1_000_000 + " ms from " + checkpointPath
+                        + " (" + checkpoint.drawsTrained + " draws, " + checkpoint.epochs + " epochs)");
+                return;
+            }
+
+            long[] draws = DrawHistoryFile.loadDraws(historyFile != null ? historyFile : "powerball_results_subset.csv");
+            ModelCheckpoint checkpoint;
+            int firstTarget;
+            if (warmStart) {
+                checkpoint = ModelCheckpoint.load(checkpointPath, math);
+                firstTarget = checkpoint.firstNewDraw(draws);
+                if (firstTarget < 0) {
+                    System.err.println("The history doesn't contain the draws " + checkpointPath + " was trained on, use --retrain");
+                    return;
+                }
+                System.out.println("Warm start from " + checkpointPath + ": " + (draws.length - firstTarget)
+                        + " new draws since the last " + checkpoint.drawsTrained);
+            } else {
+                checkpoint = new ModelCheckpoint(new SequenceModel(config, math), modeNumber(draws));
+                firstTarget = 0;
+            }
+            SequenceModel model = checkpoint.model;
+            firstTarget = Math.max(firstTarget, model.config().timeSteps);
+            if (draws.length <= model.config().timeSteps) {
+                System.err.println("No data found or invalid file format.");
+                return;
+            }
+            float[] features = normalise(draws, checkpoint.modeNumber);
+            if (firstTarget < draws.length) {
+                System.out.println(draws.length + " draws, " + model.parameterCount() + " parameters (" + model.config() + ")");
+                Fit fit = fit(model, features, draws.length, firstTarget,
+                        epochs > 0 ? epochs : model.config().epochs, System.out);
+                System.out.println("Training complete: " + fit.epochs + " epochs in " + fit.millis + " ms ("
+                        + fit.waitMillis + " ms waiting for batches)");
+                checkpoint.trainedOn(draws, draws.length, fit.epochs);
+                if (checkpointPath != null) {
+                    checkpoint.save(checkpointPath);
+                    System.out.println("Saved " + checkpointPath);
+                }
+            } else {
+                System.out.println("No new draws since " + checkpointPath);
+            }
+            printPrediction(model.predict(lastWindow(model, features, draws.length)), System.out);
+        } finally {
+            math.shutdown();
+        }
+    }
+
+    // Most common regular number over all the draws (the lowest one on a tie)
+    public static int modeNumber(long[] draws) {
+        int[] counts = new int[PackedDraw.MAX_ENCODED_NUMBER + 1];
+        for (long draw : draws) {
+            long mask = PackedDraw.mainMask(draw);
+            while (mask != 0) {
+                counts[Long.numberOfTrailingZeros(mask) + 1]++;
+                mask &= mask - 1;
+            }
+        }
+        int mode = 1;
+        for (int n = 2; n < counts.length; n++) {
+            mode = counts[n] > counts[mode] ? n : mode;
+        }
+        return mode;
+    }
+
+    // [draws, 8]: sorted regular numbers (padded with the mode) / 35, then Powerball / 20
+    public static float[] normalise(long[] draws) {
+        return normalise(draws, modeNumber(draws));
+    }
+
+    // Normalised with a given padding number (a checkpoint's, so old rows don't change with new draws)
+    public static float[] normalise(long[] draws, int mode) {
+        int[] numbers = new int[PackedDraw.MAX_ENCODED_NUMBER];
+        float[] features = new float[draws.length * SequenceModel.FEATURES];
+        for (int d = 0; d < draws.length; d++) {
+            int count = PackedDraw.unpackMain(draws[d], numbers, 0);
+            int row = d * SequenceModel.FEATURES;
+            for (int j = 0; j < SequenceModel.REGULAR_OUTPUTS; j++) {
+                features[row + j] = (j < count ? numbers[j] : mode) / (float) PackedDraw.MAX_NUMBER;
+            }
+            features[row + SequenceModel.REGULAR_OUTPUTS] = PackedDraw.powerball(draws[d]) / (float) PackedDraw.MAX_POWERBALL;
+        }
+        return features;
+    }
+
+    // Train on every window of the normalised history with early stopping, logging each epoch to log (may be null)
+    public static Fit fit(SequenceModel model, float[] features, int drawCount, PrintStream log) {
+        SequenceModel.Config config = model.config();
+        return fit(model, features, drawCount, config.timeSteps, config.epochs, log);
+    }
+
+    // Train on the windows whose target is draw firstTarget or later (a warm start only
+    // fine-tunes on the draws added since its checkpoint), for at most epochs epochs
+    public static Fit fit(SequenceModel model, float[] features, int drawCount, int firstTarget, int epochs, PrintStream log) {
+        SequenceModel.Config config = model.config();
+        SplittableRandom random = new SplittableRandom(config.seed ^ 0x5DEECE66DL ^ firstTarget);
+        // Windows stay in the history, batches just point into it
+        WindowDataset windows = new WindowDataset(features, drawCount, config.timeSteps, firstTarget);
+        return fit(model, windows, epochs, random, log);
+    }
+
+    // Train on the windows of a dataset, shuffling (and augmenting, if the config says so) from random
+    public static Fit fit(SequenceModel model, WindowDataset windows, int epochs, SplittableRandom random, PrintStream log) {
+        return fit(model, windows, epochs, random, Long.MAX_VALUE, log);
+    }
+
+    // Same, but no new epoch is started once System.currentTimeMillis() reaches deadline
+    public static Fit fit(SequenceModel model, WindowDataset windows, int epochs, SplittableRandom random, long deadline,
+                          PrintStream log) {
+        SequenceModel.Config config = model.config();
+        int samples = windows.size();
+
+        // Hold out the newest samples (tfjs validationSplit takes the end, before shuffling), left unjittered
+        int validation = (int) (samples * config.validationSplit);
+        int training = samples - validation;
+        WindowDataset validationWindows = windows.range(training, samples);
+
+        int batchSize = config.batchSize;
+        WindowDataset.Batch validationBatch = new WindowDataset.Batch();
+        Fit fit = new Fit();
+        long start = System.currentTimeMillis();
+        int sinceBest = 0;
+        long augmentSeed = config.augment ? random.nextLong() : 0L;
+        try (BatchPrefetcher batches = new BatchPrefetcher(windows.range(0, training), batchSize, epochs, random,
+                config.augment, augmentSeed)) {
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long epochStart = System.currentTimeMillis();
+                double lossSum = 0;
+                for (WindowDataset.Batch batch = batches.next(); batch != null; batch = batches.next()) {
+                    lossSum += model.trainBatch(batch) * batch.size;
+                    batches.recycle(batch);
+                }
+                fit.epochs = epoch;
+                fit.trainLoss = lossSum / training;
+                if (validation > 0) {
+                    double validationSum = 0;
+                    for (int from = 0; from < validation; from += batchSize) {
+                        validationWindows.fill(validationBatch, null, from, Math.min(batchSize, validation - from));
+                        validationSum += model.loss(validationBatch) * validationBatch.size;
+                    }
+                    fit.validationLoss = validationSum / validation;
+                }
+                if (log != null) {
+                    log.println("Epoch " + epoch + " / " + epochs + ": loss=" + String.format("%.5f", fit.trainLoss)
+                            + (validation > 0 ? " val_loss=" + String.format("%.5f", fit.validationLoss) : "")
+                            + " (" + (System.currentTimeMillis() - epochStart) + " ms)");
+                }
+                // Early stopping on the validation loss (the training loss when nothing is held out)
+                double monitored = validation > 0 ? fit.validationLoss : fit.trainLoss;
+                if (monitored < fit.bestValidationLoss) {
+                    fit.bestValidationLoss = monitored;
+                    sinceBest = 0;
+                } else if (++sinceBest >= config.patience) {
+                    break;
+                }
+                if (epoch < epochs && System.currentTimeMillis() >= deadline) {
+                    fit.outOfTime = true;
+                    break;
+                }
+            }
+            fit.waitMillis = batches.waitMillis();
+        }
+        fit.millis = System.currentTimeMillis() - start;
+        return fit;
+    }
+
+    // The model's guess for the draw after the last timeSteps draws of the history
+    public static long predictNext(SequenceModel model, float[] features, int drawCount) {
+        return toDraw(model.predict(lastWindow(model, features, drawCount)));
+    }
+
+    // The newest timeSteps draws of the history as one input window
+    static float[] lastWindow(SequenceModel model, float[] features, int drawCount) {
+        int end = drawCount * SequenceModel.FEATURES;
+        return Arrays.copyOfRange(features, end - model.inputSize(), end);
+    }
+
+    // Denormalise model outputs into a draw: numbers rounded and kept in 1-35 (duplicates collapse, so
+    // the packed draw can hold fewer than 7), Powerball rounded into 1-20
+    public static long toDraw(float[] outputs) {
+        long mask = 0L;
+        for (int j = 0; j < SequenceModel.REGULAR_OUTPUTS; j++) {
+            mask |= PackedDraw.bit(Math.max(1, Math.min(PackedDraw.MAX_NUMBER, Math.round(outputs[j] * PackedDraw.MAX_NUMBER))));
+        }
+        int powerball = Math.round(outputs[SequenceModel.REGULAR_OUTPUTS] * PackedDraw.MAX_POWERBALL);
+        return PackedDraw.of(mask, Math.max(1, Math.min(PackedDraw.MAX_POWERBALL, powerball)));
+    }
+
+    // Same output as the scripts' predictNextDraw (the raw rounded outputs, 0 lifted to 1)
+    static void printPrediction(float[] outputs, PrintStream out) {
+        int[] numbers = new int[SequenceModel.REGULAR_OUTPUTS];
+        for (int j = 0; j < numbers.length; j++) {
+            numbers[j] = Math.max(1, Math.round(outputs[j] * PackedDraw.MAX_NUMBER));
+        }
+        out.println("Predicted numbers:  " + Arrays.toString(numbers));
+        out.println("Predicted Powerball:  " + Math.round(outputs[SequenceModel.REGULAR_OUTPUTS] * PackedDraw.MAX_POWERBALL));
+    }
+}
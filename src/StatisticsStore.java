@@ -0,0 +1,225 @@
+/*Persistent, append-only statistics snapshot
+ * Keeps the running totals behind Lotto_Historical_draft2 / Lotto_Historical_Freq1 /
+ * Lotto_Historical_Freq_distance2 (number and Powerball frequency, odd/even pattern counts,
+ * distance sums, combination counts) plus the last draw number they include.
+ * A new draw is folded in with append() in O(1), the history never has to be re-read.
+ * Registered as a DrawIngestor listener it picks up freshly scraped draws as they're stored.
+ *
+ * run using java -cp ../bin StatisticsStore update powerball_results.csv stats.snapshot
+ *           java -cp ../bin StatisticsStore report stats.snapshot
+ */
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public final class StatisticsStore implements DrawIngestor.Listener {
+    private static final int MAGIC = 0x50425353;  // "PBSS"
+    private static final int VERSION = 1;  // Long counts, combinations keyed by TicketIndex main rank
+
+    final DrawAnalyses.NumberFrequency frequency = new DrawAnalyses.NumberFrequency();
+    final DrawAnalyses.OddEvenHistogram oddEven = new DrawAnalyses.OddEvenHistogram();
+    final DrawAnalyses.AverageDistance distance = new DrawAnalyses.AverageDistance();
+    final DrawAnalyses.CombinationCounts combinations = new DrawAnalyses.CombinationCounts();
+    private final DrawAnalysisEngine engine = new DrawAnalysisEngine();
+
+    private int lastDrawNumber;
+    private long drawCount;
+    private int unlabelled;  // Rows appendNewer skipped for having no draw number
+
+    public StatisticsStore() {
+        engine.register(frequency);
+        engine.register(oddEven);
+        engine.register(distance);
+        engine.register(combinations);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("update")) {
+            Path snapshot = Paths.get(args[2]);
+            StatisticsStore store = Files.exists(snapshot) ? load(snapshot) : new StatisticsStore();
+            int before = store.lastDrawNumber();
+            int added = store.appendNewer(args[1]);
+            store.save(snapshot);
+            System.out.println("Added " + added + " draws (last draw " + before + " -> " + store.lastDrawNumber() + ")");
+            if (store.unlabelled() > 0) {
+                System.err.println("Skipped " + store.unlabelled() + " rows without a draw number");
+            }
+        } else if (args.length == 2 && args[0].equals("report")) {
+            load(Paths.get(args[1])).report(System.out);
+        } else {
+            System.out.println("Usage: StatisticsStore update <csv|pbd> <snapshot> | report <snapshot>");
+        }
+    }
+
+    // Add one published draw, draws already included (or older game formats) are ignored
+    public boolean append(int drawNumber, long draw) {
+        if (drawNumber <= lastDrawNumber || !PackedDraw.isCurrentGame(draw)) {
+            return false;
+        }
+        engine.accept(draw);
+        lastDrawNumber = drawNumber;
+        drawCount++;
+        return true;
+    }
+
+    // New draws from a DrawIngestor commit
+    @Override
+    public void drawsAppended(DrawIngestor.Change change) {
+        for (int i = 0; i < change.size(); i++) {
+            append(change.drawNumbers[i], change.draws[i]);
+        }
+    }
+
+    // Add every draw in a CSV or .pbd history newer than the snapshot, oldest first.
+    // Rows without a draw number are skipped (see unlabelled()), a history with none at all is an error
+    public int appendNewer(String historyFile) throws IOException {
+        int[] drawNumbers = new int[16];
+        long[] draws = new long[16];
+        int count = 0;
+        if (historyFile.endsWith(DrawHistoryFile.EXTENSION)) {
+            try (DrawHistoryFile history = DrawHistoryFile.open(historyFile)) {
+                if (history.size() > 0 && history.lastDrawNumber() == 0) {
+                    throw new IOException("History has no draw numbers, re-import it from a labelled CSV: " + historyFile);
+                }
+                int added = 0;
+                for (int i = Math.max(0, history.indexOf(lastDrawNumber) + 1); i < history.size(); i++) {
+                    added += append(history.drawNumber(i), history.draw(i)) ? 1 : 0;
+                }
+                return added;
+            }
+        }
+
+        // CSV files are newest first, collect the new draws and apply them in draw order
+        int rows = 0;
+        int skipped = 0;
+        try (DrawCsvReader reader = DrawCsvReader.open(historyFile)) {
+            while (reader.next()) {
+                rows++;
+                if (reader.drawNumber() == 0) {
+                    skipped++;
+                } else if (reader.drawNumber() > lastDrawNumber) {
+                    if (count == draws.length) {
+                        draws = Arrays.copyOf(draws, count * 2);
+                        drawNumbers = Arrays.copyOf(drawNumbers, count * 2);
+                    }
+                    drawNumbers[count] = reader.drawNumber();
+                    draws[count++] = reader.draw();
+                }
+            }
+        }
+        if (rows > 0 && skipped == rows) {
+            throw new IOException("CSV has no draw numbers (no \"Powerball Draw N\" labels): " + historyFile);
+        }
+        unlabelled += skipped;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int[] numbers = drawNumbers;
+        Arrays.sort(order, (a, b) -> Integer.compare(numbers[a], numbers[b]));
+        int added = 0;
+        for (Integer i : order) {
+            added += append(drawNumbers[i], draws[i]) ? 1 : 0;
+        }
+        return added;
+    }
+
+    public int lastDrawNumber() {
+        return lastDrawNumber;
+    }
+
+    public int unlabelled() {
+        return unlabelled;
+    }
+
+    public long drawCount() {
+        return drawCount;
+    }
+
+    public DrawAnalyses.NumberFrequency frequency() {
+        return frequency;
+    }
+
+    public DrawAnalyses.OddEvenHistogram oddEven() {
+        return oddEven;
+    }
+
+    public DrawAnalyses.AverageDistance distance() {
+        return distance;
+    }
+
+    public DrawAnalyses.CombinationCounts combinations() {
+        return combinations;
+    }
+
+    public void report(PrintStream out) {
+        out.println("Statistics up to draw " + lastDrawNumber + " (" + drawCount + " draws)");
+        frequency.report(out);
+        oddEven.report(out);
+        distance.report(out);
+        out.println("Distinct combinations: " + combinations.distinct());
+    }
+
+    // Write the snapshot (to a temp file first so a crash never leaves half a snapshot)
+    public void save(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lastDrawNumber);
+            out.writeLong(drawCount);
+            writeLongs(out, frequency.regular);
+            writeLongs(out, frequency.powerball);
+            writeLongs(out, oddEven.counts);
+            out.writeLong(oddEven.total);
+            out.writeLong(distance.totalSpan);
+            out.writeLong(distance.draws);
+            out.writeInt(combinations.counts.size());
+            long[] ranks = combinations.counts.keysByValueDescending(Integer.MAX_VALUE);
+            for (long rank : ranks) {
+                out.writeLong(rank);
+                out.writeLong(combinations.counts.get(rank));
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static StatisticsStore load(Path path) throws IOException {
+        StatisticsStore store = new StatisticsStore();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != VERSION) {
+                throw new IOException("Not a statistics snapshot: " + path);
+            }
+            store.lastDrawNumber = in.readInt();
+            store.drawCount = in.readLong();
+            readLongs(in, store.frequency.regular);
+            readLongs(in, store.frequency.powerball);
+            readLongs(in, store.oddEven.counts);
+            store.oddEven.total = in.readLong();
+            store.distance.totalSpan = in.readLong();
+            store.distance.draws = in.readLong();
+            int combinations = in.readInt();
+            for (int i = 0; i < combinations; i++) {
+                store.combinations.counts.put(in.readLong(), in.readLong());
+            }
+        }
+        return store;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void readLongs(DataInputStream in, long[] values) throws IOException {
+        if (in.readInt() != values.length) {
+            throw new IOException("Statistics snapshot layout doesn't match");
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*One bit per ticket for the whole ticket space (TicketIndex ranks, 134,490,400 bits = ~16.8 MB)
+ * Kept off heap: memory mapped from a file (open) so a syndicate survives between runs,
+ * or a plain direct buffer (allocate) for throwaway sets.
+ * - add / contains are atomic (VarHandle getAndBitwiseOr on the 64 bit word), so any number
+ *   of threads can load tickets at once and add() tells exactly one of them a ticket is new
+ * - or / and combine whole syndicates word by word, cardinality / andCardinality are popcounts
+ * - Tickets load in bulk from the generators, ticket files and the draw histories
+ *
+ * run using java -cp ../bin TicketBitSet generate syndicate.bits --count 50000000 --mode simple --seed 42
+ *           java -cp ../bin TicketBitSet add syndicate.bits <csv | pbd | tickets.bin>
+ *           java -cp ../bin TicketBitSet or|and <a.bits> <b.bits> <out.bits>
+ *           java -cp ../bin TicketBitSet report syndicate.bits [history csv|pbd]
+ * (.bin files are BulkTicketGenerator --binary output)
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class TicketBitSet implements AutoCloseable {
+    public static final long WORDS = (TicketIndex.TICKETS + 63) >>> 6;
+    public static final long BYTES = WORDS * Long.BYTES;
+
+    private static final VarHandle WORD = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long POWERBALL_BITS = (1L << PackedDraw.MAX_POWERBALL) - 1;
+
+    private final FileChannel channel;  // null when not backed by a file
+    private final ByteBuffer words;
+
+    private TicketBitSet(FileChannel channel, ByteBuffer words) {
+        this.channel = channel;
+        this.words = words;
+    }
+
+    // Map a bitset file, creating an empty one when it doesn't exist
+    public static TicketBitSet open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size != 0 && size != BYTES) {
+            channel.close();
+            throw new IOException("Not a ticket bitset (" + size + " bytes, expected " + BYTES + "): " + path);
+        }
+        return new TicketBitSet(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, BYTES));
+    }
+
+    // Empty bitset in a direct buffer
+    public static TicketBitSet allocate() {
+        return new TicketBitSet(null, ByteBuffer.allocateDirect((int) BYTES));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("generate")) {
+            long count = 1_000_000;
+            String mode = "simple";
+            long seed = new SplittableRandom().nextLong();
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--count": count = Long.parseLong(args[++i]); break;
+                    case "--mode": mode = args[++i]; break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            try (TicketBitSet bits = open(Paths.get(args[1]))) {
+                long added = bits.addGenerated(count, seed, BulkTicketGenerator.strategyFor(mode),
+                        Runtime.getRuntime().availableProcessors());
+                System.out.println("Generated " + count + " tickets, " + added + " new (" + (count - added) + " duplicates)");
+                bits.report(System.out);
+            }
+        } else if (args.length == 3 && args[0].equals("add")) {
+            try (TicketBitSet bits = open(Paths.get(args[1]))) {
+                long added = args[2].endsWith(".bin") ? bits.addTicketFile(Paths.get(args[2])) : bits.addHistory(args[2]);
+                System.out.println("Added " + added + " new tickets");
+                bits.report(System.out);
+            }
+        } else if (args.length == 4 && (args[0].equals("or") || args[0].equals("and"))) {
+            Files.copy(Paths.get(args[1]), Paths.get(args[3]), StandardCopyOption.REPLACE_EXISTING);
+            try (TicketBitSet out = open(Paths.get(args[3])); TicketBitSet other = open(Paths.get(args[2]))) {
+                if (args[0].equals("or")) {
+                    out.or(other);
+                } else {
+                    out.and(other);
+                }
+                out.report(System.out);
+            }
+        } else if ((args.length == 2 || args.length == 3) && args[0].equals("report")) {
+            try (TicketBitSet bits = open(Paths.get(args[1]))) {
+                bits.report(System.out);
+                if (args.length == 3) {
+                    bits.reportHistory(DrawHistoryFile.loadDraws(args[2]), System.out);
+                }
+            }
+        } else {
+            System.out.println("Usage: TicketBitSet generate <bits> [--count N --mode simple|advanced --seed S]"
+                    + " | add <bits> <csv|pbd|tickets.bin> | or|and <a> <b> <out> | report <bits> [history]");
+        }
+    }
+
+    // Set a ticket rank, true when it wasn't set before
+    public boolean set(long rank) {
+        long bit = 1L << rank;  // Shift only uses the low 6 bits
+        long previous = (long) WORD.getAndBitwiseOr(words, offset(rank), bit);
+        return (previous & bit) == 0;
+    }
+
+    public boolean get(long rank) {
+        return ((long) WORD.getVolatile(words, offset(rank)) & (1L << rank)) != 0;
+    }
+
+    // Clear a ticket rank, true when it was set
+    public boolean clear(long rank) {
+        long bit = 1L << rank;
+        long previous = (long) WORD.getAndBitwiseAnd(words, offset(rank), ~bit);
+        return (previous & bit) != 0;
+    }
+
+    // Add a current game draw, true when it's a new ticket
+    public boolean add(long draw) {
+        return set(TicketIndex.rank(draw));
+    }
+
+    public boolean contains(long draw) {
+        return PackedDraw.isCurrentGame(draw) && get(TicketIndex.rank(draw));
+    }
+
+    // Add draws (older game formats are skipped), returns how many were new
+    public long addAll(long[] draws) {
+        long added = 0;
+        for (long draw : draws) {
+            if (PackedDraw.isCurrentGame(draw) && add(draw)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Add every draw of a CSV or .pbd history, returns how many were new
+    public long addHistory(String historyFile) throws IOException {
+        return addAll(DrawHistoryFile.loadDraws(historyFile));
+    }
+
+    // Add a file of little endian PackedDraw longs (BulkTicketGenerator --binary), returns how many were new
+    public long addTicketFile(Path file) throws IOException {
+        long added = 0;
+        try (FileChannel tickets = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = tickets.size() & ~7L;
+            for (long start = 0; start < size; start += 1L << 30) {
+                MappedByteBuffer window = tickets.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << 30, size - start));
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                while (window.remaining() >= Long.BYTES) {
+                    long draw = window.getLong();
+                    if (PackedDraw.isCurrentGame(draw) && add(draw)) {
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    // Generate count tickets on threads workers straight into the set, returns how many were new
+    public long addGenerated(long count, long seed, BulkTicketGenerator.TicketStrategy strategy, int threads) {
+        LongAdder added = new LongAdder();
+        BulkTicketGenerator generator = new BulkTicketGenerator(threads);
+        try {
+            generator.generate(count, seed, strategy, draw -> {
+                if (add(draw)) {
+                    added.increment();
+                }
+            });
+        } finally {
+            generator.shutdown();
+        }
+        return added.sum();
+    }
+
+    // this |= other (each word is updated atomically, so concurrent adds aren't lost)
+    public void or(TicketBitSet other) {
+        for (int offset = 0; offset < BYTES; offset += Long.BYTES) {
+            long word = (long) WORD.get(other.words, offset);
+            if (word != 0) {
+                WORD.getAndBitwiseOr(words, offset, word);
+            }
+        }
+    }
+
+    // this &= other
+    public void and(TicketBitSet other) {
+        for (int offset = 0; offset < BYTES; offset += Long.BYTES) {
+            WORD.getAndBitwiseAnd(words, offset, (long) WORD.get(other.words, offset));
+        }
+    }
+
+    // Number of tickets set
+    public long cardinality() {
+        long count = 0;
+        for (int offset = 0; offset < BYTES; offset += Long.BYTES) {
+            count += Long.bitCount((long) WORD.get(words, offset));
+        }
+        return count;
+    }
+
+    // Number of tickets in both sets, without building the intersection
+    public long andCardinality(TicketBitSet other) {
+        long count = 0;
+        for (int offset = 0; offset < BYTES; offset += Long.BYTES) {
+            count += Long.bitCount((long) WORD.get(words, offset) & (long) WORD.get(other.words, offset));
+        }
+        return count;
+    }
+
+    // Number of main number combinations with at least one of their 20 Powerball tickets set
+    public int mainCombinationsCovered() {
+        int covered = 0;
+        for (int mainRank = 0; mainRank < TicketIndex.MAIN_COMBINATIONS; mainRank++) {
+            // The 20 tickets of a main combination are consecutive bits, possibly across two words
+            long first = (long) mainRank * PackedDraw.MAX_POWERBALL;
+            int offset = offset(first);
+            int shift = (int) (first & 63);
+            long bits = (long) WORD.get(words, offset) >>> shift;
+            if (shift + PackedDraw.MAX_POWERBALL > 64) {
+                bits |= (long) WORD.get(words, offset + Long.BYTES) << (64 - shift);
+            }
+            if ((bits & POWERBALL_BITS) != 0) {
+                covered++;
+            }
+        }
+        return covered;
+    }
+
+    public void report(PrintStream out) {
+        long tickets = cardinality();
+        int mains = mainCombinationsCovered();
+        out.println("Tickets covered: " + tickets + " of " + TicketIndex.TICKETS
+                + " (" + String.format("%.4f", 100.0 * tickets / TicketIndex.TICKETS) + "%)");
+        out.println("Main combinations covered: " + mains + " of " + TicketIndex.MAIN_COMBINATIONS
+                + " (" + String.format("%.4f", 100.0 * mains / TicketIndex.MAIN_COMBINATIONS) + "%)");
+    }
+
+    // How many past draws the set holds the exact ticket for
+    public void reportHistory(long[] draws, PrintStream out) {
+        int current = 0;
+        int hits = 0;
+        for (long draw : draws) {
+            if (PackedDraw.isCurrentGame(draw)) {
+                current++;
+                hits += get(TicketIndex.rank(draw)) ? 1 : 0;
+            }
+        }
+        out.println("Historical draws covered: " + hits + " of " + current);
+    }
+
+    // Write a mapped set back to its file
+    public void force() {
+        if (channel != null) {
+            ((MappedByteBuffer) words).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    private static int offset(long rank) {
+        return (int) (rank >>> 6) << 3;
+    }
+}
@@ -0,0 +1,90 @@
+/*Dense numbering of the whole ticket space: 7 from 1-35 (6,724,520 combinations) x Powerball 1-20
+ * The main numbers are ranked with the combinatorial number system (colex order):
+ *   rank = C(c1, 1) + C(c2, 2) + ... + C(c7, 7)   for the sorted numbers as 0-based c1 < c2 < ... < c7
+ * and a ticket's rank is mainRank * 20 + (Powerball - 1), so every ticket maps to one long in
+ * [0, TICKETS) and back. Both directions are a handful of table lookups, no allocation.
+ * Two tickets are the same ticket exactly when their ranks are equal.
+ */
+import java.util.random.RandomGenerator;
+
+public final class TicketIndex {
+    public static final int MAIN_COMBINATIONS = 6_724_520;  // C(35, 7)
+    public static final long TICKETS = (long) MAIN_COMBINATIONS * PackedDraw.MAX_POWERBALL;
+
+    // BINOMIAL[n][k] = C(n, k) for n <= 35, k <= 7
+    private static final int[][] BINOMIAL = new int[PackedDraw.MAX_NUMBER + 1][PackedDraw.REGULAR_NUMBERS + 1];
+
+    static {
+        for (int n = 0; n <= PackedDraw.MAX_NUMBER; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, PackedDraw.REGULAR_NUMBERS); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k < n ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private TicketIndex() {
+    }
+
+    public static int binomial(int n, int k) {
+        return n < 0 || k < 0 || k > n ? 0 : BINOMIAL[n][k];
+    }
+
+    // Rank of a current game draw, 0 <= rank < TICKETS
+    public static long rank(long draw) {
+        if (!PackedDraw.isCurrentGame(draw)) {
+            throw new IllegalArgumentException("Not a 7 + Powerball draw: " + PackedDraw.toString(draw));
+        }
+        return (long) mainRank(draw) * PackedDraw.MAX_POWERBALL + PackedDraw.powerball(draw) - 1;
+    }
+
+    // Rank of the 7 main numbers alone, 0 <= rank < MAIN_COMBINATIONS (Powerball bits are ignored)
+    public static int mainRank(long draw) {
+        long mask = PackedDraw.mainMask(draw);
+        // Same rule as PackedDraw.isCurrentGame, but a bare main number mask (no Powerball) is fine too
+        if (Long.bitCount(mask) != PackedDraw.REGULAR_NUMBERS || (mask >>> PackedDraw.MAX_NUMBER) != 0) {
+            throw new IllegalArgumentException("Not 7 main numbers from 1-35: " + PackedDraw.mainToString(mask));
+        }
+        int rank = 0;
+        // Bits come out lowest first, so the i-th bit found is c(i+1)
+        for (int k = 1; mask != 0; k++) {
+            rank += BINOMIAL[Long.numberOfTrailingZeros(mask)][k];
+            mask &= mask - 1;
+        }
+        return rank;
+    }
+
+    // Draw (PackedDraw) with the given rank
+    public static long unrank(long rank) {
+        if (rank < 0 || rank >= TICKETS) {
+            throw new IllegalArgumentException("Ticket rank out of range: " + rank);
+        }
+        int powerball = (int) (rank % PackedDraw.MAX_POWERBALL) + 1;
+        return PackedDraw.of(unrankMain((int) (rank / PackedDraw.MAX_POWERBALL)), powerball);
+    }
+
+    // Main number mask with the given main rank
+    public static long unrankMain(int mainRank) {
+        if (mainRank < 0 || mainRank >= MAIN_COMBINATIONS) {
+            throw new IllegalArgumentException("Main rank out of range: " + mainRank);
+        }
+        // Greedy from the top: the largest c with C(c, k) <= what's left is the k-th number.
+        // c only ever goes down, so this is at most 35 steps for all 7 numbers
+        long mask = 0L;
+        int c = PackedDraw.MAX_NUMBER - 1;
+        for (int k = PackedDraw.REGULAR_NUMBERS; k >= 1; k--) {
+            while (BINOMIAL[c][k] > mainRank) {
+                c--;
+            }
+            mask |= 1L << c;
+            mainRank -= BINOMIAL[c][k];
+            c--;
+        }
+        return mask;
+    }
+
+    // Uniformly random ticket rank
+    public static long random(RandomGenerator random) {
+        return random.nextLong(TICKETS);
+    }
+}
@@ -0,0 +1,379 @@
+/*Walk-forward backtest of SequenceModel predictions against random tickets
+ * For every cut-off c (the last --folds draws of the history by default) the model is trained on
+ * draws 0 .. c - 1 only, normalised with what was known then, and its prediction for draw c is
+ * scored: regular numbers matched, Powerball matched and prize division (PrizeEvaluator). The same
+ * draws are scored for --tickets RandomDraw_Simple1 and RandomDraw_Advanced2 tickets each, so the
+ * report says whether the model beats picking at random, and what it cost in CPU time to find out.
+ * - --retrain-every 1 (the default) trains from scratch at every cut-off. With R > 1 the cut-offs
+ *   are grouped in runs by draw index (c - c % R, not by position among the folds, so the runs
+ *   don't shift as the history grows): the first of a run trains from scratch and the rest warm
+ *   start from the fold before, fine-tuning on the new draw for --warm-epochs (like SequenceTrainer
+ *   --checkpoint). When the oldest fold falls inside a run, the run's earlier cut-offs are still
+ *   trained (or read from the cache), just not scored, so a fold's result never depends on --folds
+ * - Folds (or runs of R folds when warm starting) are trained --threads at a time, each with its own
+ *   single threaded model. Random tickets come from a seed per cut-off, so nothing depends on
+ *   which folds ran together
+ * - With --cache every fold's result is kept in a directory (and its model, when warm starting),
+ *   keyed by the settings and the draws it was trained on. A rerun only trains folds that are new
+ *   or whose inputs changed, so adding a draw to the history costs one more fold
+ * The model's regular numbers are rounded outputs, equal ones collapse (as printPrediction shows
+ * them), so a prediction can hold fewer than 7 numbers.
+ *
+ * run using java -cp ../bin WalkForwardBacktest [--history powerball_results_subset.csv] [--model lstm|dense]
+ *           [--folds 20] [--retrain-every 1] [--warm-epochs 5] [--epochs 50] [--tickets 100]
+ *           [--threads N] [--seed 42] [--cache backtest-cache] [--verbose]
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class WalkForwardBacktest {
+    // One cut-off: what the model said about draws[cutoff]
+    public static final class Fold {
+        public final int cutoff;
+        public long prediction;
+        public int epochs;
+        public long millis;     // Training and predicting, 0 when it came from the cache
+        public boolean cached;
+
+        Fold(int cutoff) {
+            this.cutoff = cutoff;
+        }
+    }
+
+    // Running totals of one ticket source over the scored draws
+    public static final class Score {
+        public final String name;
+        public long tickets;
+        public long mainMatches;
+        public long mainMatchSquares;
+        public long powerballMatches;
+        public long prizes;
+        public final long[] divisions = new long[PrizeEvaluator.DIVISIONS + 1];
+
+        Score(String name) {
+            this.name = name;
+        }
+
+        void add(long ticket, long draw) {
+            int mains = PackedDraw.mainMatches(ticket, draw);
+            tickets++;
+            mainMatches += mains;
+            mainMatchSquares += mains * mains;
+            powerballMatches += PackedDraw.powerball(ticket) == PackedDraw.powerball(draw) ? 1 : 0;
+            int division = PrizeEvaluator.division(ticket, draw);
+            divisions[division]++;
+            prizes += division != PrizeEvaluator.NO_PRIZE ? 1 : 0;
+        }
+
+        public double meanMainMatches() {
+            return (double) mainMatches / tickets;
+        }
+
+        // Standard error of meanMainMatches
+        public double standardError() {
+            double mean = meanMainMatches();
+            return Math.sqrt(Math.max(0, (double) mainMatchSquares / tickets - mean * mean) / tickets);
+        }
+    }
+
+    private final SequenceModel.Config config;
+    private final int retrainEvery;
+    private final int warmEpochs;
+    private final Path cache;  // null = no cache
+
+    public WalkForwardBacktest(SequenceModel.Config config, int retrainEvery, int warmEpochs, Path cache) throws IOException {
+        this.config = config.copy();
+        this.retrainEvery = Math.max(1, retrainEvery);
+        this.warmEpochs = warmEpochs;
+        this.cache = cache;
+        if (cache != null) {
+            Files.createDirectories(cache);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String historyFile = "powerball_results_subset.csv";
+        String architecture = "lstm";
+        int folds = 20;
+        int retrainEvery = 1;
+        int warmEpochs = 5;
+        int epochs = -1;
+        int tickets = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 42;
+        String cacheDirectory = null;
+        boolean verbose = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--history": historyFile = args[++i]; break;
+                case "--model": architecture = args[++i]; break;
+                case "--folds": folds = Integer.parseInt(args[++i]); break;
+                case "--retrain-every": retrainEvery = Integer.parseInt(args[++i]); break;
+                case "--warm-epochs": warmEpochs = Integer.parseInt(args[++i]); break;
+                case "--epochs": epochs = Integer.parseInt(args[++i]); break;
+                case "--tickets": tickets = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--cache": cacheDirectory = args[++i]; break;
+                case "--verbose": verbose = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        SequenceModel.Config config = SequenceModel.Config.of(architecture);
+        config.seed = seed;
+        if (epochs > 0) {
+            config.epochs = epochs;
+        }
+
+        long[] draws = DrawHistoryFile.loadDraws(historyFile);
+        WalkForwardBacktest backtest = new WalkForwardBacktest(config,
+                retrainEvery, warmEpochs, cacheDirectory != null ? Paths.get(cacheDirectory) : null);
+        List<Integer> cutoffs = new ArrayList<>();
+        for (int c = Math.max(0, draws.length - folds); c < draws.length; c++) {
+            if (backtest.scorable(draws, c)) {
+                cutoffs.add(c);
+            }
+        }
+        if (cutoffs.isEmpty()) {
+            System.err.println("No current game draws to score in " + historyFile);
+            return;
+        }
+        System.out.println(cutoffs.size() + " folds over " + draws.length + " draws (" + config + "), "
+                + (retrainEvery == 1 ? "retrained every fold" : "retrained every " + retrainEvery + " folds, warm started between"));
+
+        long start = System.currentTimeMillis();
+        List<Fold> results = backtest.run(draws, cutoffs, threads);
+        long wall = System.currentTimeMillis() - start;
+
+        Score model = new Score("model");
+        Score simple = new Score("simple");
+        Score advanced = new Score("advanced");
+        long cpu = 0;
+        int cached = 0;
+        for (Fold fold : results) {
+            long draw = draws[fold.cutoff];
+            model.add(fold.prediction, draw);
+            scoreRandom(simple, advanced, draw, tickets, seed, fold.cutoff);
+            cpu += fold.millis;
+            cached += fold.cached ? 1 : 0;
+            if (verbose) {
+                System.out.println("Draw " + fold.cutoff + ": predicted " + PackedDraw.toString(fold.prediction)
+                        + " actual " + PackedDraw.toString(draw) + " -> " + PackedDraw.mainMatches(fold.prediction, draw)
+                        + (PackedDraw.powerball(fold.prediction) == PackedDraw.powerball(draw) ? " + PB" : "")
+                        + (fold.cached ? " (cached)" : " (" + fold.epochs + " epochs, " + fold.millis + " ms)"));
+            }
+        }
+        report(results.size(), model, simple, advanced, System.out);
+        System.out.println("Model time: " + cpu + " ms of training over " + (results.size() - cached) + " folds ("
+                + cached + " cached), " + wall + " ms wall");
+    }
+
+    // Train and predict every cut-off (oldest first), threads at a time; results in cut-off order
+    public List<Fold> run(long[] draws, List<Integer> cutoffs, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Fold>>> pending = new ArrayList<>();
+            // Runs of the cut-offs in [runAnchor, runAnchor + retrainEvery): a fresh model, then warm starts
+            for (int from = 0; from < cutoffs.size(); ) {
+                int anchor = cutoffs.get(from) - cutoffs.get(from) % retrainEvery;
+                int to = from;
+                while (to < cutoffs.size() && cutoffs.get(to) < anchor + retrainEvery) {
+                    to++;
+                }
+                // The run starts at its anchor even when the first folds asked for come later in it
+                List<Integer> run = new ArrayList<>();
+                for (int c = anchor; c < cutoffs.get(from); c++) {
+                    if (scorable(draws, c)) {
+                        run.add(c);
+                    }
+                }
+                run.addAll(cutoffs.subList(from, to));
+                pending.add(executor.submit(() -> runFolds(draws, run)));
+                from = to;
+            }
+            Set<Integer> wanted = new HashSet<>(cutoffs);
+            List<Fold> folds = new ArrayList<>();
+            for (Future<List<Fold>> future : pending) {
+                try {
+                    for (Fold fold : future.get()) {
+                        if (wanted.contains(fold.cutoff)) {
+                            folds.add(fold);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Backtest fold failed", e.getCause());
+                }
+            }
+            return folds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // A cut-off the model can be trained for and scored at: a full window before it, and a draw of
+    // the current game (older formats can't be compared with 7 number tickets)
+    private boolean scorable(long[] draws, int cutoff) {
+        return cutoff > config.timeSteps && cutoff < draws.length && PackedDraw.isCurrentGame(draws[cutoff]);
+    }
+
+    // One run of folds on one thread: the first trained from scratch, each next one warm started
+    private List<Fold> runFolds(long[] draws, List<Integer> run) throws IOException {
+        MatrixMath math = new MatrixMath(1);
+        try {
+            List<Fold> folds = new ArrayList<>();
+            ModelCheckpoint previous = null;  // The model after the fold before, once it's been needed
+            int runStart = run.get(0);
+            for (int i = 0; i < run.size(); i++) {
+                int cutoff = run.get(i);
+                String key = key(draws, cutoff, runStart);
+                Fold fold = readCached(cutoff, key);
+                boolean lastOfRun = i == run.size() - 1;
+                if (fold != null && (lastOfRun || Files.exists(modelFile(cutoff)))) {
+                    previous = null;  // Loaded from the cache when the next fold needs it
+                    folds.add(fold);
+                    continue;
+                }
+                if (i > 0 && previous == null) {
+                    previous = ModelCheckpoint.load(modelFile(run.get(i - 1)), math);
+                }
+                fold = new Fold(cutoff);
+                long start = System.currentTimeMillis();
+                ModelCheckpoint checkpoint = i == 0 ? train(draws, cutoff, math, fold) : warmStart(previous, draws, cutoff, fold);
+                float[] features = SequenceTrainer.normalise(Arrays.copyOf(draws, cutoff), checkpoint.modeNumber);
+                fold.prediction = SequenceTrainer.toDraw(
+                        checkpoint.model.predict(SequenceTrainer.lastWindow(checkpoint.model, features, cutoff)));
+                fold.millis = System.currentTimeMillis() - start;
+                writeCached(fold, key, lastOfRun ? null : checkpoint);
+                previous = checkpoint;
+                folds.add(fold);
+            }
+            return folds;
+        } finally {
+            math.shutdown();
+        }
+    }
+
+    // A new model on draws[0, cutoff), normalised with only those draws (no peeking at the mode)
+    private ModelCheckpoint train(long[] draws, int cutoff, MatrixMath math, Fold fold) {
+        long[] known = Arrays.copyOf(draws, cutoff);
+        ModelCheckpoint checkpoint = new ModelCheckpoint(new SequenceModel(config, math), SequenceTrainer.modeNumber(known));
+        float[] features = SequenceTrainer.normalise(known, checkpoint.modeNumber);
+        SequenceTrainer.Fit fit = SequenceTrainer.fit(checkpoint.model, features, cutoff, null);
+        checkpoint.trainedOn(known, cutoff, fit.epochs);
+        fold.epochs = fit.epochs;
+        return checkpoint;
+    }
+
+    // The previous fold's model fine-tuned on the windows ending in the draws it hasn't seen
+    private ModelCheckpoint warmStart(ModelCheckpoint checkpoint, long[] draws, int cutoff, Fold fold) {
+        long[] known = Arrays.copyOf(draws, cutoff);
+        float[] features = SequenceTrainer.normalise(known, checkpoint.modeNumber);
+        SequenceTrainer.Fit fit = SequenceTrainer.fit(checkpoint.model, features, cutoff,
+                Math.max(checkpoint.drawsTrained, checkpoint.model.config().timeSteps), warmEpochs, null);
+        checkpoint.trainedOn(known, cutoff, fit.epochs);
+        fold.epochs = fit.epochs;
+        return checkpoint;
+    }
+
+    // --tickets of each random strategy for one draw, from a seed of their own
+    static void scoreRandom(Score simple, Score advanced, long draw, int tickets, long seed, int cutoff) {
+        DrawGenerator simpleGenerator = new DrawGenerator(new SplittableRandom(seed ^ (cutoff * 0x9E3779B97F4A7C15L)));
+        DrawGenerator advancedGenerator = new DrawGenerator(new SplittableRandom(~seed ^ (cutoff * 0x9E3779B97F4A7C15L)));
+        for (int t = 0; t < tickets; t++) {
+            simple.add(BulkTicketGenerator.SIMPLE.next(simpleGenerator, t), draw);
+            advanced.add(BulkTicketGenerator.ADVANCED.next(advancedGenerator, t), draw);
+        }
+    }
+
+    static void report(int draws, Score model, Score simple, Score advanced, PrintStream out) {
+        out.println(String.format("%-9s %8s %14s %10s %9s", "", "tickets", "mains/ticket", "PB rate", "prizes"));
+        for (Score score : new Score[] {model, simple, advanced}) {
+            out.println(String.format("%-9s %8d %7.3f +-%.3f %9.2f%% %8.2f%%", score.name, score.tickets,
+                    score.meanMainMatches(), score.standardError(), 100.0 * score.powerballMatches / score.tickets,
+                    100.0 * score.prizes / score.tickets));
+        }
+        // Random tickets average 7 x 7 / 35 = 1.4 regular numbers and hit the Powerball 1 in 20
+        double difference = model.meanMainMatches() - simple.meanMainMatches();
+        double error = Math.hypot(model.standardError(), simple.standardError());
+        out.println(String.format("Model - simple: %+.3f mains per draw over %d draws (z = %.2f)%s", difference, draws,
+                error > 0 ? difference / error : 0, Math.abs(difference) < 2 * error ? ", no better than chance" : ""));
+    }
+
+    // What a fold's result depends on: the settings, where its run started and the draws it trained on
+    private String key(long[] draws, int cutoff, int runStart) {
+        long hash = 0x243F6A8885A308D3L;
+        for (int d = 0; d < cutoff; d++) {
+            hash = (hash ^ draws[d]) * 0x100000001B3L;
+        }
+        String settings = config + " seed=" + config.seed + " epochs=" + config.epochs + " augment=" + config.augment
+                + " retrainEvery=" + retrainEvery + " warmEpochs=" + warmEpochs + " runStart=" + runStart;
+        return Long.toHexString(hash) + "-" + Integer.toHexString(settings.hashCode());
+    }
+
+    private Path resultFile(int cutoff) {
+        return cache.resolve("fold-" + cutoff + ".properties");
+    }
+
+    private Path modelFile(int cutoff) {
+        return cache.resolve("fold-" + cutoff + ".ckpt");
+    }
+
+    private Fold readCached(int cutoff, String key) throws IOException {
+        if (cache == null || !Files.exists(resultFile(cutoff))) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(resultFile(cutoff), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!key.equals(properties.getProperty("key"))) {
+            return null;  // Different settings or history, train it again
+        }
+        Fold fold = new Fold(cutoff);
+        fold.prediction = Long.parseLong(properties.getProperty("prediction"));
+        fold.epochs = Integer.parseInt(properties.getProperty("epochs"));
+        fold.cached = true;
+        return fold;
+    }
+
+    // Result first to a temp file then moved over the old one, the model (when the next fold warm starts from it) before that
+    private void writeCached(Fold fold, String key, ModelCheckpoint checkpoint) throws IOException {
+        if (cache == null) {
+            return;
+        }
+        if (checkpoint != null) {
+            checkpoint.save(modelFile(fold.cutoff));
+        }
+        Properties properties = new Properties();
+        properties.setProperty("key", key);
+        properties.setProperty("prediction", Long.toString(fold.prediction));
+        properties.setProperty("epochs", Integer.toString(fold.epochs));
+        properties.setProperty("millis", Long.toString(fold.millis));
+        Path path = resultFile(fold.cutoff);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "WalkForwardBacktest fold");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,126 @@
+/*Sliding windows over the normalised draw history for SequenceModel, without copying them out
+ * Sample i is the timeSteps draws first + i .. first + i + timeSteps - 1 and its target is the draw
+ * after them. Consecutive draws are consecutive rows of the [draws, 8] feature array, so a window
+ * is already a contiguous slice of it: a sample is just two offsets into the one shared array, and
+ * memory is the history itself however long the windows are (Tensorflow4's prepareData copied
+ * every draw timeSteps times over, before training even started).
+ * Batches are assembled as the epoch goes, as offsets (see MatrixMath's Gathered products). Only
+ * augmented windows are copied, one batch at a time, with the jitter keyed on (seed, window, step,
+ * number) so nothing has to be stored to repeat it (BatchPrefetcher uses a new seed every epoch).
+ */
+public final class WindowDataset {
+    private static final int FEATURES = SequenceModel.FEATURES;
+
+    private final float[] features;  // [draws, 8], shared, never written
+    private final int steps;
+    private final int first;         // Draw the first window starts at
+    private final int samples;
+    private final boolean augment;
+    private final long seed;
+
+    // The windows whose target is draw firstTarget or later
+    public WindowDataset(float[] features, int drawCount, int timeSteps, int firstTarget) {
+        this(features, timeSteps, firstTarget - timeSteps, drawCount - firstTarget, false, 0L);
+        if (firstTarget < timeSteps || drawCount * FEATURES > features.length) {
+            throw new IllegalArgumentException("No " + timeSteps + " draws before target " + firstTarget
+                    + " or fewer than " + drawCount + " draws of features");
+        }
+    }
+
+    private WindowDataset(float[] features, int steps, int first, int samples, boolean augment, long seed) {
+        this.features = features;
+        this.steps = steps;
+        this.first = first;
+        this.samples = Math.max(0, samples);
+        this.augment = augment;
+        this.seed = seed;
+    }
+
+    public int size() {
+        return samples;
+    }
+
+    public int timeSteps() {
+        return steps;
+    }
+
+    // Samples [from, to) of this one, sharing the history
+    public WindowDataset range(int from, int to) {
+        return new WindowDataset(features, steps, first + from, to - from, augment, seed);
+    }
+
+    // Same windows with Tensorflow4's augmentData applied: regular numbers (before normalising) + U(-0.5, 0.5)
+    public WindowDataset augmented(long seed) {
+        return new WindowDataset(features, steps, first, samples, true, seed);
+    }
+
+    // Offset in the history of sample i's window, and of its target
+    public int windowStart(int sample) {
+        return (first + sample) * FEATURES;
+    }
+
+    public int targetStart(int sample) {
+        return (first + sample + steps) * FEATURES;
+    }
+
+    // Point batch at count samples: order[from ...] when order is given, else from, from + 1, ...
+    public void fill(Batch batch, int[] order, int from, int count) {
+        batch.ensureCapacity(count, augment ? count * steps * FEATURES : 0);
+        batch.size = count;
+        batch.inputs = augment ? batch.jittered : features;
+        batch.targets = features;
+        int window = steps * FEATURES;
+        for (int b = 0; b < count; b++) {
+            int sample = order != null ? order[from + b] : from + b;
+            batch.targetStarts[b] = targetStart(sample);
+            if (!augment) {
+                batch.inputStarts[b] = windowStart(sample);
+            } else {
+                int start = b * window;
+                batch.inputStarts[b] = start;
+                jitter(first + sample, batch.jittered, start);
+            }
+        }
+    }
+
+    // Copy the window starting at draw d into out[start ...] with its regular numbers jittered
+    private void jitter(int d, float[] out, int start) {
+        System.arraycopy(features, d * FEATURES, out, start, steps * FEATURES);
+        for (int t = 0; t < steps; t++) {
+            int row = start + t * FEATURES;
+            long key = ((long) d * steps + t) * SequenceModel.REGULAR_OUTPUTS;
+            for (int j = 0; j < SequenceModel.REGULAR_OUTPUTS; j++) {
+                double uniform = (mix(seed + mix(key + j)) >>> 11) * 0x1.0p-53;
+                out[row + j] += (float) (uniform - 0.5) / PackedDraw.MAX_NUMBER;
+            }
+        }
+    }
+
+    // SplitMix64's finaliser, a random looking long for every key
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // One mini-batch: window b is inputs[inputStarts[b] ...] (timeSteps x 8), its target
+    // targets[targetStarts[b] ...] (8). Reused from batch to batch
+    public static final class Batch {
+        public int size;
+        public float[] inputs;
+        public int[] inputStarts = new int[0];
+        public float[] targets;
+        public int[] targetStarts = new int[0];
+        private float[] jittered = new float[0];  // Augmented windows, only ever one batch of them
+
+        void ensureCapacity(int count, int jitteredSize) {
+            if (inputStarts.length < count) {
+                inputStarts = new int[count];
+                targetStarts = new int[count];
+            }
+            if (jittered.length < jitteredSize) {
+                jittered = new float[jitteredSize];
+            }
+        }
+    }
+}